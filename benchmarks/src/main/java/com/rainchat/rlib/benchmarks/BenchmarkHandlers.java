@@ -0,0 +1,25 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.annotation.Completion;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Handlers registered by the benchmarks. They do no work so only the framework is measured.
+ */
+public class BenchmarkHandlers {
+
+    public void run(CommandSender sender, String value, int amount) {
+    }
+
+    @Completion("@material")
+    public void material(CommandSender sender, String material) {
+    }
+
+    @Completion("@player")
+    public void player(CommandSender sender, String player) {
+    }
+
+    @Completion("@range:0-1000000")
+    public void range(CommandSender sender, String amount) {
+    }
+}
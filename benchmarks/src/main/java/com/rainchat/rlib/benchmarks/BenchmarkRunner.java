@@ -0,0 +1,26 @@
+package com.rainchat.rlib.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the suite with the GC profiler attached, so every result reports ops/s together with
+ * the allocation rate ({@code gc.alloc.rate.norm} is bytes per operation).
+ * Accepts the usual JMH command line, e.g. {@code java -jar benchmarks.jar Dispatch -p patterns=1000}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
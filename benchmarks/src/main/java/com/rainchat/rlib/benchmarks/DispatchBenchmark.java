@@ -0,0 +1,60 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.TestSenders;
+import com.rainchat.rlib.commands.components.SimpleCommand;
+import com.rainchat.rlib.commands.services.MessageService;
+import com.rainchat.rlib.commands.services.TabCompleterService;
+import com.rainchat.rlib.commands.services.TypeParserService;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SimpleCommand#onCommand} with a growing number of registered patterns under one root.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int patterns;
+
+    private SimpleCommand simpleCommand;
+    private Command command;
+    private CommandSender sender;
+    private String[] first;
+    private String[] last;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        simpleCommand = new SimpleCommand(new TypeParserService(), new TabCompleterService(), new MessageService());
+        command = Stubs.command("bench");
+        sender = TestSenders.sender("bench", null);
+
+        Method handler = BenchmarkHandlers.class.getMethod("run", CommandSender.class, String.class, int.class);
+        BenchmarkHandlers handlers = new BenchmarkHandlers();
+        for (int i = 0; i < patterns; i++) {
+            simpleCommand.addCommand(handlers, handler, "bench sub" + i);
+        }
+
+        first = new String[]{"sub0", "value", "42"};
+        last = new String[]{"sub" + (patterns - 1), "value", "42"};
+    }
+
+    @Benchmark
+    public boolean dispatchFirst() {
+        return simpleCommand.onCommand(sender, command, "bench", first);
+    }
+
+    @Benchmark
+    public boolean dispatchLast() {
+        return simpleCommand.onCommand(sender, command, "bench", last);
+    }
+}
@@ -0,0 +1,47 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.TestSenders;
+import com.rainchat.rlib.commands.services.MessageService;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageService#sendMessage} to a sender that discards the message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBenchmark {
+
+    private MessageService messageService;
+    private CommandSender sender;
+    private String[] args;
+
+    @Setup
+    public void setup() {
+        messageService = new MessageService();
+        sender = TestSenders.sender("bench", null);
+        args = new String[]{"give", "Steve", "diamond"};
+        messageService.register("bench.placeholders", "&7{sender} &cused &7/{command} {arg0} {arg1}&c!");
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        messageService.sendMessage("command.error.permission", sender, args);
+    }
+
+    @Benchmark
+    public void sendMissingMessage() {
+        messageService.sendMessage("command.error.unknown", sender, args);
+    }
+
+    @Benchmark
+    public void sendPlaceholderMessage() {
+        messageService.sendMessage("bench.placeholders", sender, "bench", args);
+    }
+}
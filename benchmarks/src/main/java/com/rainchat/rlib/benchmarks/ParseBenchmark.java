@@ -0,0 +1,70 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.services.TypeParserService;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TypeParserService#parseObject} for primitives and enums, including invalid input,
+ * and the unboxed {@link TypeParserService.IntParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    private TypeParserService typeParserService;
+    private TypeParserService.IntParser intParser;
+
+    @Setup
+    public void setup() {
+        typeParserService = new TypeParserService();
+        intParser = typeParserService.getParser(int.class, TypeParserService.IntParser.class);
+    }
+
+    @Benchmark
+    public Object parseInt() {
+        return typeParserService.parseObject(int.class, "123456");
+    }
+
+    @Benchmark
+    public int parseIntUnboxed() {
+        return intParser.parseInt("123456");
+    }
+
+    @Benchmark
+    public Object parseInvalidInt() {
+        return typeParserService.parseObject(int.class, "12x456");
+    }
+
+    @Benchmark
+    public Object parseDouble() {
+        return typeParserService.parseObject(double.class, "-1234.5678");
+    }
+
+    @Benchmark
+    public Object parseBoolean() {
+        return typeParserService.parseObject(boolean.class, "true");
+    }
+
+    @Benchmark
+    public Object parseMaterial() {
+        return typeParserService.parseObject(Material.class, "diamond_sword");
+    }
+
+    @Benchmark
+    public Object parseInvalidMaterial() {
+        return typeParserService.parseObject(Material.class, "not_a_material");
+    }
+
+    @Benchmark
+    public Object parseChatColor() {
+        return typeParserService.parseObject(ChatColor.class, "gold");
+    }
+}
@@ -0,0 +1,73 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.TestSenders;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Minimal stand-ins for the Bukkit server and commands, so the suite runs without a server. Senders and
+ * players come from the commands module's {@link TestSenders}.
+ */
+final class Stubs {
+
+    private static final List<Player> ONLINE_PLAYERS = new ArrayList<>();
+
+    private Stubs() {
+    }
+
+    static Command command(String name) {
+        return new Command(name) {
+            @Override
+            public boolean execute(CommandSender sender, String commandLabel, String[] args) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Installs a fake {@link Server} with the given number of online players. The server singleton can
+     * only be set once per JVM; later calls just replace the player list.
+     */
+    static synchronized void server(int players) {
+        ONLINE_PLAYERS.clear();
+        for (int i = 0; i < players; i++) {
+            ONLINE_PLAYERS.add(TestSenders.player("Player" + i, null));
+        }
+        if (Bukkit.getServer() != null) return;
+
+        Logger logger = Logger.getLogger("benchmarks");
+        Bukkit.setServer((Server) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{Server.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOnlinePlayers":
+                            return Collections.unmodifiableList(ONLINE_PLAYERS);
+                        case "getWorlds":
+                            return Collections.emptyList();
+                        case "getLogger":
+                            return logger;
+                        case "isPrimaryThread":
+                            return true;
+                        case "getName":
+                        case "getVersion":
+                        case "getBukkitVersion":
+                        case "toString":
+                            return "benchmarks";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return TestSenders.defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+}
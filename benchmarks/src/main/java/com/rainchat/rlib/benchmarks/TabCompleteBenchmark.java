@@ -0,0 +1,70 @@
+package com.rainchat.rlib.benchmarks;
+
+import com.rainchat.rlib.commands.TestSenders;
+import com.rainchat.rlib.commands.components.SimpleCommand;
+import com.rainchat.rlib.commands.services.MessageService;
+import com.rainchat.rlib.commands.services.TabCompleterService;
+import com.rainchat.rlib.commands.services.TypeParserService;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SimpleCommand#onTabComplete} against the {@code @material}, {@code @player} and {@code @range} sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TabCompleteBenchmark {
+
+    @Param({"material", "player", "range"})
+    public String source;
+
+    @Param({"200"})
+    public int players;
+
+    private SimpleCommand simpleCommand;
+    private Command command;
+    private CommandSender sender;
+    private String[] empty;
+    private String[] prefixed;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Stubs.server(players);
+        TabCompleterService tabCompleterService = new TabCompleterService();
+        tabCompleterService.trackDynamicSources();
+        // One sender completing in a loop would only measure the rate limiter's rejections
+        tabCompleterService.setTabCompletionLimit(null);
+        // Repeating the same input would be answered from the sender's completion session, not the source
+        tabCompleterService.getSessions().setMaxSessions(0);
+
+        simpleCommand = new SimpleCommand(new TypeParserService(), tabCompleterService, new MessageService());
+        command = Stubs.command("bench");
+        sender = TestSenders.sender("bench", null);
+
+        BenchmarkHandlers handlers = new BenchmarkHandlers();
+        Method handler = BenchmarkHandlers.class.getMethod(source, CommandSender.class, String.class);
+        simpleCommand.addCommand(handlers, handler, "bench " + source);
+
+        empty = new String[]{source, ""};
+        prefixed = new String[]{source, source.equals("material") ? "diamond" : source.equals("player") ? "player1" : "99"};
+    }
+
+    @Benchmark
+    public List<String> completeEmpty() {
+        return simpleCommand.onTabComplete(sender, command, "bench", empty);
+    }
+
+    @Benchmark
+    public List<String> completePrefix() {
+        return simpleCommand.onTabComplete(sender, command, "bench", prefixed);
+    }
+}
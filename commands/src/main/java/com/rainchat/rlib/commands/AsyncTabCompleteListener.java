@@ -0,0 +1,63 @@
+package com.rainchat.rlib.commands;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import com.rainchat.rlib.commands.components.SimpleCommand;
+import com.rainchat.rlib.commands.services.TabCompleterService;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers tab completion for a controller's commands off the main thread.
+ * When a completer is not thread-safe the event is left unhandled, and Bukkit completes it on the main thread
+ * through {@link SimpleCommand#onTabComplete}; the async thread never waits for the main thread.
+ */
+final class AsyncTabCompleteListener implements Listener {
+
+    private final CommandController controller;
+
+    AsyncTabCompleteListener(CommandController controller) {
+        this.controller = controller;
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (event.isHandled() || !event.isCommand()) return;
+
+        String buffer = event.getBuffer();
+        int space = buffer.indexOf(' ');
+        if (space < 0) return;
+
+        String label = buffer.substring(buffer.startsWith("/") ? 1 : 0, space);
+        int namespace = label.indexOf(':');
+        if (namespace >= 0) label = label.substring(namespace + 1);
+
+        PluginCommand command = controller.getPluginCommand(label);
+        if (command == null || !(command.getExecutor() instanceof SimpleCommand)) return;
+
+        SimpleCommand executor = (SimpleCommand) command.getExecutor();
+        CommandSender sender = event.getSender();
+        TabCompleterService tabCompleterService = controller.getTabCompleterService();
+        if (!tabCompleterService.tryTabComplete(sender)) {
+            event.setCompletions(new ArrayList<>());
+            event.setHandled(true);
+            return;
+        }
+        String[] args = buffer.substring(space + 1).split(" ", -1);
+
+        List<String> completions = executor.complete(sender, command, args, !Bukkit.isPrimaryThread());
+        if (completions == null) {
+            // The main-thread fallback takes its own token
+            tabCompleterService.refundTabComplete(sender);
+            return;
+        }
+
+        event.setCompletions(completions);
+        event.setHandled(true);
+    }
+}
@@ -0,0 +1,441 @@
+package com.rainchat.rlib.commands;
+
+import com.rainchat.rlib.commands.components.SimpleCommand;
+import com.rainchat.rlib.commands.services.MessageService;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+/**
+ * Runs many command lines of this controller's commands, e.g. a maintenance script, without stalling the server.
+ * Lines go through the same dispatch path as typed commands, but each tick only runs them until the tick budget
+ * is spent and the rest wait for the next tick. Lines are read on an async thread into a bounded queue, so a large
+ * file is never held in memory and reading waits while execution falls behind.
+ * <p>
+ * Rejected lines are collected instead of being sent one by one; the sender gets periodic progress and one
+ * summary at the end. Handler exceptions are counted, and only the first is logged with its stack trace.
+ * Blank lines and lines starting with {@code #} are ignored. Jobs still running when the plugin is disabled are
+ * cancelled.
+ */
+public final class BatchCommandExecutor {
+
+    /**
+     * Rejected lines kept with their text; further rejections are only counted.
+     */
+    private static final int MAX_RECORDED_FAILURES = 100;
+    private static final int MAX_REPORTED_FAILURES = 10;
+    // Queued by the reader after the last line
+    private static final Object END = new Object();
+
+    private final CommandController controller;
+    private final Plugin plugin;
+    private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+    private volatile long tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(5);
+    private volatile int readAhead = 256;
+    private volatile int progressIntervalTicks = 100;
+
+    BatchCommandExecutor(CommandController controller, Plugin plugin) {
+        this.controller = controller;
+        this.plugin = plugin;
+
+        MessageService message = controller.getMessage();
+        message.register("command.batch.progress", "&e⚠ &7| &7Batch running: &f{arg0} &7lines done, &f{arg1} &7failed.");
+        message.register("command.batch.done", "&e⚠ &7| &7Batch finished: &f{arg0} &7lines in &f{arg2} &7ticks, &f{arg1} &7failed.");
+        message.register("command.batch.failure", "&e⚠ &7| &7Line &f{arg0}&7: &f/{arg1} &8- &c{arg2}");
+        message.register("command.batch.more-failures", "&e⚠ &7| &7... and &f{arg0} &7more failed lines.");
+        message.register("command.batch.errors", "&e⚠ &7| &f{arg0} &7lines failed with an error; the first one is in the server log.");
+        message.register("command.batch.read-error", "&e⚠ &7| &cCould not read the batch: &7{arg0}");
+    }
+
+    /**
+     * How long each tick may spend running lines. At least one line runs per tick, however small the budget.
+     */
+    public void setTickBudget(long budget, TimeUnit unit) {
+        if (budget <= 0) throw new IllegalArgumentException("Tick budget must be positive");
+        this.tickBudgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * How many lines may be read ahead of execution.
+     */
+    public void setReadAhead(int lines) {
+        if (lines <= 0) throw new IllegalArgumentException("Read-ahead must be positive");
+        this.readAhead = lines;
+    }
+
+    /**
+     * @param ticks ticks between progress messages to the sender, or {@code 0} for none
+     */
+    public void setProgressInterval(int ticks) {
+        this.progressIntervalTicks = Math.max(0, ticks);
+    }
+
+    /**
+     * Runs the lines of a UTF-8 text file as {@code sender}.
+     */
+    public Job run(CommandSender sender, Path file) {
+        return start(sender, () -> {
+            try {
+                return Files.lines(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Runs command lines as {@code sender}. The stream is consumed on an async thread and closed when the job ends.
+     */
+    public Job run(CommandSender sender, Stream<String> lines) {
+        return start(sender, () -> lines);
+    }
+
+    public Job run(CommandSender sender, Collection<String> lines) {
+        return run(sender, new ArrayList<>(lines).stream());
+    }
+
+    private Job start(CommandSender sender, Supplier<Stream<String>> source) {
+        Job job = new Job(sender, new ArrayBlockingQueue<>(readAhead));
+        job.task = Bukkit.getScheduler().runTaskTimer(plugin, job::tick, 1L, 1L);
+        jobs.add(job);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> job.read(source));
+        return job;
+    }
+
+    /**
+     * Cancels every running job and completes its result with what ran so far. Called on the main thread when the
+     * plugin is disabled, since its tick tasks stop then.
+     */
+    void shutdown() {
+        for (Job job : jobs) {
+            job.cancelled = true;
+            job.finish();
+        }
+    }
+
+    /**
+     * A running batch. Counters may be read from any thread.
+     */
+    public final class Job {
+        private final CommandSender sender;
+        private final BlockingQueue<Object> queue;
+        private final CompletableFuture<Report> result = new CompletableFuture<>();
+        private final List<LineFailure> failures = new ArrayList<>();
+        private final Map<String, Integer> failureCounts = new TreeMap<>();
+        private final long startNanos = System.nanoTime();
+        private volatile BukkitTask task;
+        private volatile boolean cancelled;
+        private volatile long processed;
+        private volatile long failed;
+        private volatile long errors;
+        private volatile IOException readError;
+        private long lineNumber;
+        private int ticks;
+
+        private Job(CommandSender sender, BlockingQueue<Object> queue) {
+            this.sender = sender;
+            this.queue = queue;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return failed lines whose handler threw, counted in {@link #getFailed()} as well
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        /**
+         * Stops after the line that is running; the result completes with what ran so far.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Completes on the main thread once every line ran or the job was cancelled.
+         */
+        public CompletableFuture<Report> getResult() {
+            return result;
+        }
+
+        private void read(Supplier<Stream<String>> source) {
+            try (Stream<String> lines = source.get()) {
+                Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext()) {
+                    if (!enqueue(iterator.next())) return;
+                }
+            } catch (UncheckedIOException e) {
+                readError = e.getCause();
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not read command batch", e);
+                readError = new IOException(e);
+            }
+            enqueue(END);
+        }
+
+        /**
+         * Waits while the queue is full, waking up now and then to notice a cancelled job or a disabled plugin.
+         *
+         * @return {@code false} if the job was cancelled instead
+         */
+        private boolean enqueue(Object line) {
+            try {
+                while (!cancelled && plugin.isEnabled()) {
+                    if (queue.offer(line, 100, TimeUnit.MILLISECONDS)) return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            return false;
+        }
+
+        private void tick() {
+            ticks++;
+            if (sender instanceof Player && !((Player) sender).isOnline()) cancelled = true;
+            if (cancelled) {
+                finish();
+                return;
+            }
+
+            long deadline = System.nanoTime() + tickBudgetNanos;
+            do {
+                Object line = queue.poll();
+                if (line == null) break;
+                if (line == END) {
+                    finish();
+                    return;
+                }
+                execute((String) line);
+            } while (System.nanoTime() < deadline && !cancelled);
+
+            int interval = progressIntervalTicks;
+            if (interval > 0 && ticks % interval == 0) {
+                controller.getMessage().sendMessage("command.batch.progress", sender,
+                        new String[]{String.valueOf(processed), String.valueOf(failed)});
+            }
+        }
+
+        private void execute(String line) {
+            lineNumber++;
+            String commandLine = line.trim();
+            if (commandLine.isEmpty() || commandLine.charAt(0) == '#') return;
+            if (commandLine.charAt(0) == '/') commandLine = commandLine.substring(1);
+
+            String[] split = commandLine.split(" ");
+            String label = split[0];
+            int namespace = label.indexOf(':');
+            if (namespace >= 0) label = label.substring(namespace + 1);
+            String[] args = Arrays.copyOfRange(split, 1, split.length);
+
+            PluginCommand command = controller.getPluginCommand(label);
+            if (command == null || !(command.getExecutor() instanceof SimpleCommand)) {
+                recordFailure(commandLine, label, "command.error.exists", args);
+            } else {
+                try {
+                    SimpleCommand.Rejection rejection = ((SimpleCommand) command.getExecutor()).dispatch(sender, command, label, args);
+                    if (rejection != null) {
+                        if (rejection.getCause() != null) recordError(commandLine, rejection.getCause());
+                        recordFailure(commandLine, label, rejection.getMessageId(), rejection.getArguments());
+                    }
+                } catch (RuntimeException e) {
+                    recordError(commandLine, e);
+                    recordFailure(commandLine, label, "command.error.no-message", args);
+                }
+            }
+            processed++;
+        }
+
+        /**
+         * Keeps the rendered message of the first failures, so the summary shows what the sender would have read.
+         */
+        private void recordFailure(String commandLine, String label, String messageId, String[] arguments) {
+            failed++;
+            failureCounts.merge(messageId, 1, Integer::sum);
+            if (failures.size() < MAX_RECORDED_FAILURES) {
+                String message = controller.getMessage().render(messageId, sender, label, arguments);
+                failures.add(new LineFailure(lineNumber, commandLine, messageId, message != null ? message : messageId));
+            }
+        }
+
+        private void recordError(String commandLine, Exception e) {
+            if (errors++ == 0) {
+                plugin.getLogger().log(Level.WARNING, "Batch line " + lineNumber + " failed: " + commandLine
+                        + " (further errors in this batch are only counted)", e);
+            }
+        }
+
+        private void finish() {
+            if (task != null) task.cancel();
+            jobs.remove(this);
+            if (result.isDone()) return;
+            queue.clear();
+
+            Report report = new Report(processed, failed, errors, ticks, System.nanoTime() - startNanos, cancelled,
+                    Collections.unmodifiableList(failures), Collections.unmodifiableMap(failureCounts), readError);
+            MessageService message = controller.getMessage();
+            if (readError != null) {
+                message.sendMessage("command.batch.read-error", sender, new String[]{String.valueOf(readError.getMessage())});
+            }
+            message.sendMessage("command.batch.done", sender,
+                    new String[]{String.valueOf(processed), String.valueOf(failed), String.valueOf(ticks)});
+            for (int i = 0; i < failures.size() && i < MAX_REPORTED_FAILURES; i++) {
+                LineFailure failure = failures.get(i);
+                message.sendMessage("command.batch.failure", sender,
+                        new String[]{String.valueOf(failure.getLineNumber()), failure.getLine(), failure.getMessage()});
+            }
+            if (failed > MAX_REPORTED_FAILURES) {
+                message.sendMessage("command.batch.more-failures", sender, new String[]{String.valueOf(failed - MAX_REPORTED_FAILURES)});
+            }
+            if (errors > 0) {
+                message.sendMessage("command.batch.errors", sender, new String[]{String.valueOf(errors)});
+            }
+            result.complete(report);
+        }
+    }
+
+    /**
+     * What a finished {@link Job} ran.
+     */
+    public static final class Report {
+        private final long processed;
+        private final long failed;
+        private final long errors;
+        private final int ticks;
+        private final long elapsedNanos;
+        private final boolean cancelled;
+        private final List<LineFailure> failures;
+        private final Map<String, Integer> failureCounts;
+        private final IOException readError;
+
+        private Report(long processed, long failed, long errors, int ticks, long elapsedNanos, boolean cancelled,
+                       List<LineFailure> failures, Map<String, Integer> failureCounts, IOException readError) {
+            this.processed = processed;
+            this.failed = failed;
+            this.errors = errors;
+            this.ticks = ticks;
+            this.elapsedNanos = elapsedNanos;
+            this.cancelled = cancelled;
+            this.failures = failures;
+            this.failureCounts = failureCounts;
+            this.readError = readError;
+        }
+
+        /**
+         * @return command lines that were run, not counting blank lines and comments
+         */
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return failed lines whose handler threw; only the first one was logged
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public int getTicks() {
+            return ticks;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return the first rejected lines, in order; {@link #getFailed()} counts all of them
+         */
+        public List<LineFailure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return rejected lines per message id
+         */
+        public Map<String, Integer> getFailureCounts() {
+            return failureCounts;
+        }
+
+        /**
+         * @return why the input could not be read to the end, or {@code null}
+         */
+        public IOException getReadError() {
+            return readError;
+        }
+    }
+
+    public static final class LineFailure {
+        private final long lineNumber;
+        private final String line;
+        private final String messageId;
+        private final String message;
+
+        private LineFailure(long lineNumber, String line, String messageId, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.messageId = messageId;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the {@link MessageService} message the sender would have been sent for this line
+         */
+        public String getMessageId() {
+            return messageId;
+        }
+
+        /**
+         * @return that message as rendered for the sender, or its id if a custom resolver produces it
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.rainchat.rlib.commands;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Ends the running batches of a {@link BatchCommandExecutor} together with the plugin that owns it.
+ */
+final class BatchCommandExecutorListener implements Listener {
+
+    private final Plugin plugin;
+    private final BatchCommandExecutor batchExecutor;
+
+    BatchCommandExecutorListener(Plugin plugin, BatchCommandExecutor batchExecutor) {
+        this.plugin = plugin;
+        this.batchExecutor = batchExecutor;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(PluginDisableEvent event) {
+        if (event.getPlugin() == plugin) batchExecutor.shutdown();
+    }
+}
@@ -1,37 +1,75 @@
 package com.rainchat.rlib.commands;
 
+import com.rainchat.rlib.commands.annotation.Async;
 import com.rainchat.rlib.commands.annotation.CommandNode;
+import com.rainchat.rlib.commands.annotation.Completion;
+import com.rainchat.rlib.commands.annotation.Cooldown;
+import com.rainchat.rlib.commands.annotation.Permission;
 import com.rainchat.rlib.commands.annotation.TabComplete;
+import com.rainchat.rlib.commands.components.AsyncCommandExecutor;
+import com.rainchat.rlib.commands.components.AsyncCommandExecutorListener;
+import com.rainchat.rlib.commands.components.BindingPlan;
+import com.rainchat.rlib.commands.components.CommandMetrics;
+import com.rainchat.rlib.commands.components.CommandRegistration;
+import com.rainchat.rlib.commands.components.MethodInvoker;
+import com.rainchat.rlib.commands.components.PermissionCache;
+import com.rainchat.rlib.commands.components.PermissionCacheListener;
 import com.rainchat.rlib.commands.components.SimpleCommand;
+import com.rainchat.rlib.commands.services.CompletionSourceListener;
 import com.rainchat.rlib.commands.services.MessageService;
+import com.rainchat.rlib.commands.services.OfflinePlayerIndex;
+import com.rainchat.rlib.commands.services.OfflinePlayerIndexListener;
+import com.rainchat.rlib.commands.services.PlayerIndex;
+import com.rainchat.rlib.commands.services.RateLimiter;
 import com.rainchat.rlib.commands.services.TabCompleterService;
 import com.rainchat.rlib.commands.services.TypeParserService;
 import org.bukkit.Bukkit;
 import org.bukkit.Server;
+import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
 import java.util.logging.Level;
 
 public final class CommandController {
 
     private final Plugin plugin;
-    private final Map<String, SimpleCommand> commandExecutors = new HashMap<>();
+    private final Map<String, SimpleCommand> commandExecutors = new HashMap<>(); // guarded by this
+    private volatile Map<String, PluginCommand> pluginCommands = Map.of();
     private final CommandMap commandMap;
-    private final TypeParserService typeParserService = new TypeParserService();
-    private final TabCompleterService tabCompleterService = new TabCompleterService();
+    private final PlayerIndex playerIndex = new PlayerIndex();
+    private final TypeParserService typeParserService = new TypeParserService(playerIndex);
+    private final TabCompleterService tabCompleterService = new TabCompleterService(playerIndex);
     private final MessageService message = new MessageService();
+    private final AsyncCommandExecutor asyncExecutor;
+    private final CommandMetrics metrics = new CommandMetrics();
+    private final PermissionCache permissionCache = new PermissionCache();
+    private final BatchCommandExecutor batchExecutor;
+    private AsyncTabCompleteListener asyncTabCompleteListener;
+    private OfflinePlayerIndex offlinePlayerIndex;
 
     public CommandController(final Plugin plugin) {
         this.plugin = plugin;
         this.commandMap = getCommandMap();
+        this.asyncExecutor = new AsyncCommandExecutor(plugin);
+        this.batchExecutor = new BatchCommandExecutor(this, plugin);
+
+        Bukkit.getPluginManager().registerEvents(new CompletionSourceListener(tabCompleterService), plugin);
+        Bukkit.getPluginManager().registerEvents(new PermissionCacheListener(permissionCache), plugin);
+        Bukkit.getPluginManager().registerEvents(new AsyncCommandExecutorListener(plugin, asyncExecutor), plugin);
+        Bukkit.getPluginManager().registerEvents(new BatchCommandExecutorListener(plugin, batchExecutor), plugin);
+        tabCompleterService.trackDynamicSources();
     }
 
 
@@ -50,66 +88,295 @@ public final class CommandController {
         return command;
     }
 
+    /**
+     * Registers the handlers of {@code commandInstance}. Uses the {@link CommandRegistration} generated for its class
+     * when the annotation processor ran, and reads the annotations reflectively otherwise.
+     */
     public void registerCommands(Object commandInstance) {
+        registerAll(Collections.singletonList(commandInstance));
+    }
+
+    public void registerAll(Object... commandInstances) {
+        registerAll(Arrays.asList(commandInstances));
+    }
+
+    /**
+     * Registers several handler objects as one batch: each command's handlers are published once
+     * and new commands are added to the server's command map in a single call.
+     */
+    public synchronized void registerAll(Collection<?> commandInstances) {
+        Batch batch = new Batch();
+        for (Object commandInstance : commandInstances) {
+            CommandRegistration.Registrar registrar = new ControllerRegistrar(batch, commandInstance);
+            CommandRegistration<Object> registration = generatedRegistration(commandInstance.getClass());
+            if (registration == null) {
+                registerReflectively(commandInstance, registrar);
+                continue;
+            }
+            try {
+                registration.register(commandInstance, registrar);
+            } catch (RuntimeException e) {
+                // What was staged before the failure is still published with the rest of the batch
+                plugin.getLogger().log(Level.SEVERE, "Could not register the commands of " + commandInstance.getClass().getName(), e);
+            }
+        }
+        batch.publish();
+    }
+
+    /**
+     * Removes every handler registered from {@code commandInstance}. Commands left without handlers
+     * are removed from the server's command map.
+     */
+    public synchronized void unregisterCommands(Object commandInstance) {
+        Batch batch = new Batch();
+        for (SimpleCommand executor : commandExecutors.values()) {
+            if (executor.unstage(commandInstance)) {
+                batch.touched.add(executor);
+            }
+        }
+        batch.publish();
+    }
+
+    private void registerReflectively(Object commandInstance, CommandRegistration.Registrar registrar) {
         Class<?> clazz = commandInstance.getClass();
         for (Method method : clazz.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(CommandNode.class)) {
-                CommandNode commandNode = method.getAnnotation(CommandNode.class);
-                String commandName = commandNode.value().split(" ")[0];
-                String[] commandAliases = commandNode.aliases();
+            if (!method.isAnnotationPresent(CommandNode.class) && !method.isAnnotationPresent(TabComplete.class)) continue;
+            try {
+                registerMethod(commandInstance, method, registrar);
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not register " + clazz.getName() + "#" + method.getName(), e);
+            }
+        }
+    }
 
-                registerCommand(commandInstance, method, commandName, commandNode.value());
+    private void registerMethod(Object commandInstance, Method method, CommandRegistration.Registrar registrar) {
+        Class<?> clazz = commandInstance.getClass();
+        MethodInvoker invoker = MethodInvoker.bind(commandInstance, method);
 
-                for (String alias : commandAliases) {
-                    String main = alias.split(" ")[0];
-                    registerCommand(commandInstance, method, main, alias);
-                }
+        if (method.isAnnotationPresent(CommandNode.class)) {
+            CommandNode commandNode = method.getAnnotation(CommandNode.class);
+            Permission permission = method.getAnnotation(Permission.class);
+            Completion completion = method.getAnnotation(Completion.class);
+            Cooldown cooldown = method.getAnnotation(Cooldown.class);
+
+            // The same check the annotation processor makes at compile time
+            if (cooldown != null && (cooldown.value() <= 0 || cooldown.burst() < 1)) {
+                plugin.getLogger().log(Level.SEVERE, "Could not register command \"" + commandNode.value()
+                        + "\": @Cooldown needs a positive interval and a burst of at least 1.");
+            } else {
+                registrar.command(commandNode.value(), commandNode.aliases(),
+                        permission != null ? permission.value() : null,
+                        completion != null ? completion.value() : null,
+                        method.isAnnotationPresent(Async.class),
+                        cooldown != null ? new RateLimiter(cooldown.value(), cooldown.unit(), cooldown.burst()) : null,
+                        BindingPlan.slots(method), clazz.getName() + "#" + method.getName(), invoker);
+            }
+        }
+
+        if (method.isAnnotationPresent(TabComplete.class)) {
+            TabComplete tabComplete = method.getAnnotation(TabComplete.class);
+            registrar.tabCompletion(tabComplete.value(), tabComplete.threadSafe(), invoker);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CommandRegistration<Object> generatedRegistration(Class<?> clazz) {
+        try {
+            Class<?> generated = Class.forName(clazz.getName() + CommandRegistration.SUFFIX, true, clazz.getClassLoader());
+            return (CommandRegistration<Object>) generated.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not load generated registration for " + clazz.getName() + ", falling back to reflection", e);
+            return null;
+        }
+    }
+
+    /**
+     * Changes collected under the controller lock and applied together by {@link #publish()}.
+     */
+    private final class Batch {
+        private final Set<SimpleCommand> touched = new LinkedHashSet<>();
+        private final List<Command> added = new ArrayList<>();
+
+        SimpleCommand executor(String commandName) {
+            String name = commandName.toLowerCase(Locale.ROOT);
+            SimpleCommand executor = commandExecutors.get(name);
+            if (executor == null) {
+                PluginCommand command = getCommand(name, plugin);
+                if (command == null) return null;
+                executor = new SimpleCommand(typeParserService, tabCompleterService, message, asyncExecutor, metrics, permissionCache, plugin.getLogger());
+                command.setExecutor(executor);
+                command.setTabCompleter(executor);
+                commandExecutors.put(name, executor);
+                added.add(command);
             }
+            touched.add(executor);
+            return executor;
+        }
 
-            if (method.isAnnotationPresent(TabComplete.class)) {
-                TabComplete tabComplete = method.getAnnotation(TabComplete.class);
-                String[] commandNames = tabComplete.value();
-
-                for (String commandNameWithArgs : commandNames) {
-                    String commandName = commandNameWithArgs.split(" ")[0];
-
-                    SimpleCommand executor = commandExecutors.computeIfAbsent(commandName, k -> {
-                        PluginCommand command = getCommand(commandName, plugin);
-                        if (command != null) {
-                            SimpleCommand newExecutor = new SimpleCommand(typeParserService, tabCompleterService, message);
-                            command.setExecutor(newExecutor);
-                            command.setTabCompleter(newExecutor);
-                            commandMap.register(plugin.getDescription().getName(), command);
-                            return newExecutor;
-                        }
-                        return null;
+        void publish() {
+            Map<String, PluginCommand> commands = new HashMap<>(pluginCommands);
+            for (Command command : added) {
+                commands.put(command.getName(), (PluginCommand) command);
+            }
+
+            Set<Command> removed = new HashSet<>();
+            for (SimpleCommand executor : touched) {
+                executor.publish();
+                if (executor.isEmpty()) {
+                    commandExecutors.values().remove(executor);
+                    commands.values().removeIf(command -> {
+                        if (command.getExecutor() != executor) return false;
+                        removed.add(command);
+                        return true;
                     });
+                }
+            }
+            added.removeAll(removed);
+            pluginCommands = Map.copyOf(commands);
 
-                    if (executor != null) {
-                        executor.addCompletion(commandInstance, method, commandNameWithArgs);
-                    }
+            if (commandMap == null || (added.isEmpty() && removed.isEmpty())) return;
+            if (!added.isEmpty()) {
+                commandMap.registerAll(plugin.getDescription().getName(), added);
+            }
+            if (!removed.isEmpty()) {
+                commandMap.getKnownCommands().values().removeIf(removed::contains);
+                for (Command command : removed) {
+                    command.unregister(commandMap);
                 }
             }
+            syncCommands();
+        }
+    }
 
+    /**
+     * Resends the command tree to online players after commands were added or removed at runtime.
+     */
+    private void syncCommands() {
+        if (Bukkit.getOnlinePlayers().isEmpty()) return;
+        try {
+            Server server = Bukkit.getServer();
+            Method syncCommands = server.getClass().getDeclaredMethod("syncCommands");
+            syncCommands.setAccessible(true);
+            syncCommands.invoke(server);
+        } catch (final Exception e) {
+            plugin.getLogger().log(Level.FINE, "Could not resend the command tree to players", e);
         }
     }
 
-    private void registerCommand(Object commandInstance, Method method, String commandName, String fullCommand) {
-        SimpleCommand executor = commandExecutors.computeIfAbsent(commandName, k -> {
-            PluginCommand command = getCommand(commandName, plugin);
-            if (command != null) {
-                SimpleCommand newExecutor = new SimpleCommand(typeParserService, tabCompleterService, message);
-                command.setExecutor(newExecutor);
-                command.setTabCompleter(newExecutor);
-                commandMap.register(plugin.getDescription().getName(), command);
-                return newExecutor;
+    private final class ControllerRegistrar implements CommandRegistration.Registrar {
+        private final Batch batch;
+        private final Object handler;
+
+        private ControllerRegistrar(Batch batch, Object handler) {
+            this.batch = batch;
+            this.handler = handler;
+        }
+
+        @Override
+        public void command(String pattern, String[] aliases, String permission, String[] completions, boolean async,
+                            RateLimiter cooldown, BindingPlan.Slot[] slots, String owner, MethodInvoker invoker) {
+            try {
+                BindingPlan plan = BindingPlan.compile(owner, slots, typeParserService);
+                stageCommand(pattern, plan, invoker, permission, completions, async, cooldown);
+                for (String alias : aliases) {
+                    stageCommand(alias, plan, invoker, permission, completions, async, cooldown);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not register command \"" + pattern + "\": " + e.getMessage());
             }
-            return null;
-        });
+        }
 
-        if (executor != null) {
-            executor.addCommand(commandInstance, method, fullCommand);
+        private void stageCommand(String pattern, BindingPlan plan, MethodInvoker invoker, String permission, String[] completions,
+                                  boolean async, RateLimiter cooldown) {
+            SimpleCommand executor = batch.executor(pattern.split(" ")[0]);
+            if (executor != null) {
+                executor.stageCommand(handler, pattern, plan, invoker, permission, completions, async, cooldown);
+            }
         }
+
+        @Override
+        public void tabCompletion(String[] patterns, boolean threadSafe, MethodInvoker invoker) {
+            for (String commandNameWithArgs : patterns) {
+                SimpleCommand executor = batch.executor(commandNameWithArgs.split(" ")[0]);
+                if (executor != null) {
+                    executor.stageCompletion(handler, commandNameWithArgs, invoker, threadSafe);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Registers the built-in command that prints the slowest commands, e.g. {@code enableMetricsCommand("mycore metrics")}.
+     * It requires the {@code rlib.commands.metrics} permission and takes an optional row count.
+     */
+    public synchronized void enableMetricsCommand(String pattern) {
+        Method method;
+        try {
+            method = MetricsCommand.class.getMethod("show", CommandSender.class, int.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        MetricsCommand metricsCommand = new MetricsCommand(metrics);
+        Batch batch = new Batch();
+        new ControllerRegistrar(batch, metricsCommand).command(pattern, new String[0],
+                method.getAnnotation(Permission.class).value(), null, false, null,
+                BindingPlan.slots(method), MetricsCommand.class.getName() + "#show", MethodInvoker.bind(metricsCommand, method));
+        batch.publish();
+    }
+
+    PluginCommand getPluginCommand(String label) {
+        return pluginCommands.get(label.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Serves tab completion for this controller's commands from Paper's {@code AsyncTabCompleteEvent}.
+     * Completions that need a completer not declared thread-safe are left to Bukkit's main-thread completion.
+     */
+    public void enableAsyncTabCompletion() {
+        if (asyncTabCompleteListener != null) return;
+        asyncTabCompleteListener = new AsyncTabCompleteListener(this);
+        Bukkit.getPluginManager().registerEvents(asyncTabCompleteListener, plugin);
+    }
+
+    /**
+     * Opens the offline player index in the plugin's data folder and registers the {@code @offlineplayer} completion
+     * and the {@link org.bukkit.OfflinePlayer} parser backed by it. Call it before registering handlers that take an
+     * {@code OfflinePlayer}. A new index is filled once from {@link Bukkit#getOfflinePlayers()} on an async thread;
+     * after that joining players are added as they come and nothing reads the playerdata directory again.
+     *
+     * @return the index, or {@code null} if it could not be opened
+     */
+    public synchronized OfflinePlayerIndex enableOfflinePlayerIndex() {
+        if (offlinePlayerIndex != null) return offlinePlayerIndex;
+        Path file = plugin.getDataFolder().toPath().resolve("offline-players.idx");
+        OfflinePlayerIndex index;
+        try {
+            Files.createDirectories(file.getParent());
+            index = OfflinePlayerIndex.open(file);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not open the offline player index " + file, e);
+            return null;
+        }
+        offlinePlayerIndex = index;
+
+        typeParserService.registerOfflinePlayers(index);
+        tabCompleterService.addSource("@offlineplayer", true, (sender, args, extra) -> index);
+        Bukkit.getPluginManager().registerEvents(new OfflinePlayerIndexListener(plugin, index), plugin);
+
+        boolean fill = index.isEmpty();
+        List<Player> online = new ArrayList<>(Bukkit.getOnlinePlayers());
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                index.addAll(fill ? Arrays.asList(Bukkit.getOfflinePlayers()) : online);
+                if (fill) index.compact();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not fill the offline player index", e);
+            }
+        });
+        return index;
     }
 
     private CommandMap getCommandMap() {
@@ -141,5 +408,35 @@ public final class CommandController {
         return message;
     }
 
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Cached permission answers of players. Call {@link PermissionCache#invalidate(java.util.UUID)} when a
+     * player's permissions change, e.g. from the permission plugin's recalculation event.
+     */
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    /**
+     * @return the index opened by {@link #enableOfflinePlayerIndex()}, or {@code null}
+     */
+    public OfflinePlayerIndex getOfflinePlayerIndex() {
+        return offlinePlayerIndex;
+    }
+
+    public AsyncCommandExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Runs scripts and other bulk command lines spread over several ticks, see {@link BatchCommandExecutor}.
+     */
+    public BatchCommandExecutor getBatchExecutor() {
+        return batchExecutor;
+    }
+
 }
 
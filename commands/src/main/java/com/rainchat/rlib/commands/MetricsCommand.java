@@ -0,0 +1,52 @@
+package com.rainchat.rlib.commands;
+
+import com.rainchat.rlib.commands.annotation.Option;
+import com.rainchat.rlib.commands.annotation.Permission;
+import com.rainchat.rlib.commands.components.CommandMetrics;
+import com.rainchat.rlib.commands.services.MessageService;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Built-in admin command that lists the slowest commands, see {@link CommandController#enableMetricsCommand(String)}.
+ */
+final class MetricsCommand {
+
+    private final CommandMetrics metrics;
+
+    MetricsCommand(CommandMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Permission("rlib.commands.metrics")
+    public void show(CommandSender sender, @Option("10") int limit) {
+        if (limit < 1) {
+            sender.sendMessage(MessageService.color("&e⚠ &7| &cThe number of commands to list must be at least 1."));
+            return;
+        }
+        List<CommandMetrics.Snapshot> slowest = metrics.slowest(limit);
+        if (slowest.isEmpty()) {
+            sender.sendMessage(MessageService.color("&e⚠ &7| &7No commands have been recorded yet."));
+            return;
+        }
+
+        sender.sendMessage(MessageService.color("&e⚠ &7| &7Slowest commands by mean invoke time:"));
+        for (CommandMetrics.Snapshot snapshot : slowest) {
+            long failures = snapshot.getFailures().values().stream().mapToLong(Long::longValue).sum();
+            sender.sendMessage(MessageService.color(String.format(Locale.ROOT,
+                    "&e/%s &7- mean &f%.3fms&7, p99 &f%.3fms&7, parse &f%.3fms&7, calls &f%d&7, failures &f%d",
+                    snapshot.getPattern(),
+                    millis(snapshot.getInvoke().getMeanNanos()),
+                    millis(snapshot.getInvoke().getPercentileNanos(0.99)),
+                    millis(snapshot.getParse().getMeanNanos()),
+                    snapshot.getInvocations(),
+                    failures)));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+}
@@ -0,0 +1,15 @@
+package com.rainchat.rlib.commands.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the handler off the main thread once its arguments are parsed.
+ * Commands from the same sender still run in the order they were sent.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Async {
+}
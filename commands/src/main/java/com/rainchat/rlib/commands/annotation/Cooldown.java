@@ -0,0 +1,21 @@
+package com.rainchat.rlib.commands.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often one sender may run the command: {@code burst} uses in a row, then one more every
+ * {@code value} {@code unit}. Checked after {@link Permission} and before the arguments are parsed.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cooldown {
+    long value();
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    int burst() default 1;
+}
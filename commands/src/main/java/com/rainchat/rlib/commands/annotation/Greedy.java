@@ -0,0 +1,14 @@
+package com.rainchat.rlib.commands.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the last {@code String} parameter of a handler as taking the rest of the input, spaces included.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Greedy {
+}
@@ -6,4 +6,9 @@ import java.lang.annotation.RetentionPolicy;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface TabComplete {
     String[] value();
+
+    /**
+     * Whether the handler may be called off the main thread when async tab completion is enabled.
+     */
+    boolean threadSafe() default false;
 }
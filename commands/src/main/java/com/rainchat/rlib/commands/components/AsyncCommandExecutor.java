@@ -0,0 +1,142 @@
+package com.rainchat.rlib.commands.components;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Runs {@link com.rainchat.rlib.commands.annotation.Async} handlers and lets them hop back to the main thread.
+ * Tasks of one sender are chained, so they never overlap and finish in submission order.
+ * <p>
+ * Once {@link #shutdown()} has run, new tasks are refused and work handed back to the main thread is dropped,
+ * since a disabled plugin may no longer schedule tasks.
+ */
+public final class AsyncCommandExecutor {
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 2;
+
+    private final Plugin plugin;
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private volatile Executor executor;
+    // The default executor, shut down with this one; executors passed to setExecutor belong to the caller
+    private volatile ExecutorService ownExecutor;
+    private volatile boolean shutdown;
+
+    public AsyncCommandExecutor(Plugin plugin) {
+        this.plugin = plugin;
+        this.ownExecutor = defaultExecutor();
+        this.executor = ownExecutor;
+    }
+
+    /**
+     * Uses a virtual-thread-per-task executor when the runtime has one (Java 21+), otherwise a pool of at most
+     * as many daemon threads as there are processors, and no fewer than four so a few blocking handlers do not
+     * hold up everyone else. Idle pool threads exit after a minute.
+     */
+    private static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "rlib-command-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Replaces the executor; the default one is shut down. The caller stays responsible for shutting down
+     * {@code executor}.
+     */
+    public void setExecutor(Executor executor) {
+        ExecutorService previous = ownExecutor;
+        ownExecutor = null;
+        this.executor = executor;
+        if (previous != null) previous.shutdown();
+    }
+
+    /**
+     * Refuses new tasks and waits briefly for running ones, then stops the default executor.
+     * Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        shutdown = true;
+        ExecutorService own = ownExecutor;
+        if (own == null) return;
+        own.shutdown();
+        try {
+            if (!own.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Async command handlers still running after " + SHUTDOWN_WAIT_SECONDS + " s, interrupting them");
+                own.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            own.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a future that fails with {@link RejectedExecutionException} once the executor is shut down
+     */
+    public CompletableFuture<Void> submit(CommandSender sender, Runnable task) {
+        if (shutdown) return CompletableFuture.failedFuture(new RejectedExecutionException("Plugin is disabled"));
+        Object key = key(sender);
+        CompletableFuture<Void> future = tails.compute(key, (k, tail) -> (tail == null
+                ? CompletableFuture.<Void>completedFuture(null)
+                : tail.exceptionally(e -> null)).thenRunAsync(task, executor));
+        future.whenComplete((result, error) -> tails.remove(key, future));
+        return future;
+    }
+
+    /**
+     * Runs {@code task} on the main thread. After shutdown it is dropped.
+     */
+    public void runSync(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else if (canSchedule()) {
+            Bukkit.getScheduler().runTask(plugin, task);
+        } else {
+            plugin.getLogger().log(Level.FINE, "Dropped a main-thread task of a disabled plugin");
+        }
+    }
+
+    /**
+     * Calls {@code task} on the main thread. After shutdown the future fails with {@link RejectedExecutionException}.
+     */
+    public <T> CompletableFuture<T> callSync(Supplier<T> task) {
+        if (Bukkit.isPrimaryThread()) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        if (!canSchedule()) return CompletableFuture.failedFuture(new RejectedExecutionException("Plugin is disabled"));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private boolean canSchedule() {
+        return !shutdown && plugin.isEnabled();
+    }
+
+    private static Object key(CommandSender sender) {
+        return sender instanceof Player ? ((Player) sender).getUniqueId() : sender.getName();
+    }
+}
@@ -0,0 +1,26 @@
+package com.rainchat.rlib.commands.components;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Shuts down an {@link AsyncCommandExecutor} together with the plugin that owns it.
+ */
+public final class AsyncCommandExecutorListener implements Listener {
+
+    private final Plugin plugin;
+    private final AsyncCommandExecutor asyncExecutor;
+
+    public AsyncCommandExecutorListener(Plugin plugin, AsyncCommandExecutor asyncExecutor) {
+        this.plugin = plugin;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(PluginDisableEvent event) {
+        if (event.getPlugin() == plugin) asyncExecutor.shutdown();
+    }
+}
@@ -0,0 +1,303 @@
+package com.rainchat.rlib.commands.components;
+
+import com.rainchat.rlib.commands.annotation.Greedy;
+import com.rainchat.rlib.commands.annotation.Option;
+import com.rainchat.rlib.commands.services.ParseResult;
+import com.rainchat.rlib.commands.services.TypeParserService;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of how a handler's parameters are filled from a sender and the remaining arguments.
+ * Built once per handler, so dispatch only resolves values into an {@code Object[]}.
+ */
+public final class BindingPlan {
+
+    private static final int SENDER = 0;
+    private static final int REST = 1;
+    private static final int ARGUMENT = 2;
+    private static final int GREEDY = 3;
+
+    private final int[] kinds;
+    private final TypeParserService.Parser[] parsers;
+    private final boolean[] optional;
+    private final Object[] defaults;
+    private final String[] lazyDefaults;
+    private final String[] names;
+    private final Class<?> requiredSender;
+    private final Failure senderFailure;
+
+    private BindingPlan(int size, Class<?> requiredSender, String senderMessage) {
+        this.kinds = new int[size];
+        this.names = new String[size];
+        this.parsers = new TypeParserService.Parser[size];
+        this.optional = new boolean[size];
+        this.defaults = new Object[size];
+        this.lazyDefaults = new String[size];
+        this.requiredSender = requiredSender;
+        this.senderFailure = senderMessage != null ? new Failure(senderMessage, null, null, -1) : null;
+    }
+
+    public static BindingPlan compile(Method method, TypeParserService typeParserService) {
+        return compile(method.getDeclaringClass().getName() + "#" + method.getName(), slots(method), typeParserService);
+    }
+
+    /**
+     * Describes the parameters of {@code method} from its types and annotations.
+     */
+    public static Slot[] slots(Method method) {
+        Parameter[] parameters = method.getParameters();
+        Slot[] slots = new Slot[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i].getType();
+            Option option = parameters[i].getAnnotation(Option.class);
+            String defaultValue = option != null ? option.value() : null;
+
+            if (CommandSender.class.isAssignableFrom(type)) {
+                slots[i] = Slot.sender(type);
+            } else if (String[].class.isAssignableFrom(type)) {
+                slots[i] = Slot.rest();
+            } else if (parameters[i].isAnnotationPresent(Greedy.class)) {
+                slots[i] = Slot.greedy(name(parameters[i], i), type, option != null, defaultValue);
+            } else {
+                slots[i] = Slot.argument(name(parameters[i], i), type, option != null, defaultValue);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Parameter names are only in the class file when it was compiled with {@code -parameters}; otherwise the
+     * parameter is named by its position instead of the synthetic {@code argN}.
+     */
+    private static String name(Parameter parameter, int index) {
+        return parameter.isNamePresent() ? parameter.getName() : "argument " + (index + 1);
+    }
+
+    /**
+     * @param owner handler name used in error messages, e.g. {@code MyCommands#give}
+     * @throws IllegalArgumentException if a slot cannot be bound
+     */
+    public static BindingPlan compile(String owner, Slot[] slots, TypeParserService typeParserService) {
+        Class<?> requiredSender = null;
+        String senderMessage = null;
+        for (Slot slot : slots) {
+            if (slot.kind != SENDER) continue;
+            if (ConsoleCommandSender.class.isAssignableFrom(slot.type)) {
+                requiredSender = ConsoleCommandSender.class;
+                senderMessage = "command.error.player-only";
+            } else if (Player.class.isAssignableFrom(slot.type)) {
+                requiredSender = Player.class;
+                senderMessage = "command.error.console-only";
+            }
+        }
+
+        BindingPlan plan = new BindingPlan(slots.length, requiredSender, senderMessage);
+        boolean greedy = false;
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            plan.kinds[i] = slot.kind;
+            plan.names[i] = slot.name;
+            if (slot.kind == SENDER || slot.kind == REST) continue;
+
+            if (greedy) {
+                throw new IllegalArgumentException("@Greedy parameter of " + owner + " must be the last argument.");
+            }
+            plan.optional[i] = slot.optional;
+
+            if (slot.kind == GREEDY) {
+                if (slot.type != String.class) {
+                    throw new IllegalArgumentException("@Greedy parameter " + slot.name + " of " + owner + " must be a String.");
+                }
+                greedy = true;
+                plan.defaults[i] = slot.defaultValue;
+                continue;
+            }
+
+            TypeParserService.Parser parser = typeParserService.getParser(slot.type);
+            if (parser == null) {
+                throw new IllegalArgumentException("Cannot bind parameter " + slot.name + " of " + owner
+                        + ": no registered parser for " + slot.type.getCanonicalName() + ".");
+            }
+            plan.parsers[i] = parser;
+
+            if (!slot.optional || isNullDefault(slot)) continue;
+            if (isValueType(slot.type)) {
+                ParseResult result = parser.parse(slot.defaultValue);
+                if (!result.isSuccess()) {
+                    throw new IllegalArgumentException("Invalid @Option default \"" + slot.defaultValue + "\" for parameter "
+                            + slot.name + " of " + owner + ".");
+                }
+                plan.defaults[i] = result.getValue();
+            } else {
+                // Players and the like only exist at dispatch time
+                plan.lazyDefaults[i] = slot.defaultValue;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Fills {@code target} from the tokens after the cursor of {@code arguments}.
+     *
+     * @return {@code null} on success, otherwise what to tell the sender
+     */
+    public Failure bind(CommandSender sender, CommandArguments arguments, Object[] target) {
+        if (requiredSender != null && !requiredSender.isInstance(sender)) {
+            return senderFailure;
+        }
+
+        int offset = arguments.position();
+        String[] remainingArgs = null;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case SENDER:
+                    target[i] = sender;
+                    break;
+                case REST:
+                    if (remainingArgs == null) {
+                        int position = arguments.position();
+                        arguments.position(offset);
+                        remainingArgs = arguments.rest();
+                        arguments.position(position);
+                    }
+                    target[i] = remainingArgs;
+                    break;
+                case GREEDY:
+                    if (arguments.hasNext()) {
+                        target[i] = arguments.remainingText();
+                    } else if (optional[i]) {
+                        target[i] = defaults[i];
+                    } else {
+                        return Failure.NO_ARGS;
+                    }
+                    break;
+                default:
+                    if (arguments.hasNext()) {
+                        String arg = arguments.next();
+                        ParseResult result = parsers[i].parse(arg);
+                        if (!result.isSuccess()) {
+                            return new Failure(result.getError(), new String[]{arg, names[i]}, parsers[i], arguments.position() - offset - 1);
+                        }
+                        target[i] = result.getValue();
+                    } else if (optional[i] && lazyDefaults[i] != null) {
+                        ParseResult result = parsers[i].parse(lazyDefaults[i]);
+                        if (!result.isSuccess()) {
+                            // The sender did not type the rejected value, so there is nothing to correct
+                            return new Failure(result.getError(), new String[]{lazyDefaults[i], names[i]}, null, -1);
+                        }
+                        target[i] = result.getValue();
+                    } else if (optional[i]) {
+                        target[i] = defaults[i];
+                    } else {
+                        return Failure.NO_ARGS;
+                    }
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * Whether a default can be parsed once at registration: primitives, their wrappers, enums and strings.
+     */
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type == String.class || type == Boolean.class
+                || type == Character.class || type == Byte.class || type == Short.class || type == Integer.class
+                || type == Long.class || type == Float.class || type == Double.class;
+    }
+
+    /**
+     * An {@code @Option} without a value leaves a reference parameter {@code null} when its argument is missing.
+     * Primitives need a value, and a string gets the empty string.
+     */
+    private static boolean isNullDefault(Slot slot) {
+        return slot.defaultValue.isEmpty() && !slot.type.isPrimitive() && slot.type != String.class;
+    }
+
+    /**
+     * Why arguments could not be bound: a {@link com.rainchat.rlib.commands.services.MessageService} key and the
+     * arguments to send it with, or {@code null} arguments to send the command's own.
+     */
+    public static final class Failure {
+        static final Failure NO_ARGS = new Failure("command.error.no-args", null, null, -1);
+
+        private final String messageId;
+        private final String[] arguments;
+        private final TypeParserService.Parser parser;
+        private final int argumentIndex;
+
+        private Failure(String messageId, String[] arguments, TypeParserService.Parser parser, int argumentIndex) {
+            this.messageId = messageId;
+            this.arguments = arguments;
+            this.parser = parser;
+            this.argumentIndex = argumentIndex;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public String[] getArguments() {
+            return arguments;
+        }
+
+        /**
+         * @return which argument after the command path was rejected, or {@code -1} if none was
+         */
+        public int getArgumentIndex() {
+            return argumentIndex;
+        }
+
+        /**
+         * Values the rejecting parser would have accepted that are close to the input, closest first.
+         */
+        public List<String> closest(int limit) {
+            return parser != null ? parser.closest(arguments[0], limit) : Collections.emptyList();
+        }
+    }
+
+    /**
+     * One handler parameter as seen by the binder. Produced by {@link #slots(Method)} or by generated registrations.
+     */
+    public static final class Slot {
+        private final int kind;
+        private final String name;
+        private final Class<?> type;
+        private final boolean optional;
+        private final String defaultValue;
+
+        private Slot(int kind, String name, Class<?> type, boolean optional, String defaultValue) {
+            this.kind = kind;
+            this.name = name;
+            this.type = type;
+            this.optional = optional;
+            this.defaultValue = defaultValue;
+        }
+
+        public static Slot sender(Class<?> type) {
+            return new Slot(SENDER, "sender", type, false, null);
+        }
+
+        public static Slot rest() {
+            return new Slot(REST, "args", String[].class, false, null);
+        }
+
+        public static Slot greedy(String name, Class<?> type, boolean optional, String defaultValue) {
+            return new Slot(GREEDY, name, type, optional, defaultValue);
+        }
+
+        public static Slot argument(String name, Class<?> type, boolean optional, String defaultValue) {
+            return new Slot(ARGUMENT, name, type, optional, defaultValue);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.rainchat.rlib.commands.components;
+
+import java.util.Arrays;
+
+/**
+ * Tokens of one command invocation, read in a single pass over Bukkit's argument array.
+ * Arguments wrapped in double quotes become one token; without quotes the original array is used as is.
+ * A cursor tracks how many tokens dispatch and binding have consumed.
+ */
+public final class CommandArguments {
+
+    private final String[] raw;
+    private final String[] tokens;
+    private final int[] rawStart;
+    private int position;
+
+    private CommandArguments(String[] raw, String[] tokens, int[] rawStart) {
+        this.raw = raw;
+        this.tokens = tokens;
+        this.rawStart = rawStart;
+    }
+
+    public static CommandArguments of(String[] args) {
+        String[] tokens = null;
+        int[] rawStart = null;
+        int count = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int end = arg.startsWith("\"") ? closingQuote(args, i) : -1;
+
+            if (end < 0) {
+                if (tokens != null) {
+                    tokens[count] = arg;
+                    rawStart[count] = i;
+                }
+                count++;
+                continue;
+            }
+
+            if (tokens == null) {
+                tokens = Arrays.copyOf(args, args.length);
+                rawStart = new int[args.length];
+                for (int j = 0; j < count; j++) rawStart[j] = j;
+            }
+            tokens[count] = unquote(args, i, end);
+            rawStart[count] = i;
+            count++;
+            i = end;
+        }
+
+        if (tokens == null) {
+            return new CommandArguments(args, args, null);
+        }
+        return new CommandArguments(args, Arrays.copyOf(tokens, count), Arrays.copyOf(rawStart, count));
+    }
+
+    private static int closingQuote(String[] args, int start) {
+        if (args[start].length() > 1 && args[start].endsWith("\"")) return start;
+        for (int i = start + 1; i < args.length; i++) {
+            if (args[i].endsWith("\"")) return i;
+        }
+        return -1;
+    }
+
+    private static String unquote(String[] args, int start, int end) {
+        if (start == end) {
+            return args[start].substring(1, args[start].length() - 1);
+        }
+        StringBuilder builder = new StringBuilder().append(args[start], 1, args[start].length());
+        for (int i = start + 1; i <= end; i++) {
+            builder.append(' ');
+            builder.append(args[i], 0, i == end ? args[i].length() - 1 : args[i].length());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The token array. Shared, not copied; callers must not modify it.
+     */
+    public String[] tokens() {
+        return tokens;
+    }
+
+    public int length() {
+        return tokens.length;
+    }
+
+    public String get(int index) {
+        return tokens[index];
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public void position(int position) {
+        this.position = position;
+    }
+
+    public boolean hasNext() {
+        return position < tokens.length;
+    }
+
+    public String next() {
+        return tokens[position++];
+    }
+
+    /**
+     * Tokens after the cursor, as a new array.
+     */
+    public String[] rest() {
+        return Arrays.copyOfRange(tokens, Math.min(position, tokens.length), tokens.length);
+    }
+
+    /**
+     * Everything after the cursor exactly as typed, quotes included, and moves the cursor to the end.
+     */
+    public String remainingText() {
+        if (position >= tokens.length) return "";
+        int from = rawStart == null ? position : rawStart[position];
+        position = tokens.length;
+        return String.join(" ", Arrays.asList(raw).subList(from, raw.length));
+    }
+}
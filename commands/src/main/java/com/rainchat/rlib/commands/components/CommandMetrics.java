@@ -0,0 +1,179 @@
+package com.rainchat.rlib.commands.components;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-pattern invocation, failure and latency counters for one {@link com.rainchat.rlib.commands.CommandController}.
+ * Recording only touches striped counters and lock-free histograms, so it can stay enabled under load.
+ */
+public final class CommandMetrics {
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Stats stats(String pattern) {
+        return stats.computeIfAbsent(pattern, Stats::new);
+    }
+
+    /**
+     * Zeroes every pattern's counters. The {@link Stats} objects stay in place, since handlers keep a reference
+     * to theirs.
+     */
+    public void reset() {
+        stats.values().forEach(Stats::reset);
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshot = new TreeMap<>();
+        stats.forEach((pattern, value) -> snapshot.put(pattern, value.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * Patterns ordered by mean invoke latency, slowest first.
+     */
+    public List<Snapshot> slowest(int limit) {
+        if (limit <= 0) return Collections.emptyList();
+        List<Snapshot> snapshots = new ArrayList<>(snapshot().values());
+        snapshots.removeIf(snapshot -> snapshot.getInvoke().getCount() == 0);
+        snapshots.sort(Comparator.comparingLong((Snapshot snapshot) -> snapshot.getInvoke().getMeanNanos()).reversed());
+        return snapshots.subList(0, Math.min(limit, snapshots.size()));
+    }
+
+    public enum Failure {
+        PERMISSION,
+        SENDER,
+        PARSE,
+        NO_ARGS,
+        COOLDOWN,
+        EXCEPTION
+    }
+
+    public static final class Stats {
+        private final String pattern;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder[] failures = new LongAdder[Failure.values().length];
+        private final LatencyHistogram parse = new LatencyHistogram();
+        private final LatencyHistogram invoke = new LatencyHistogram();
+        private final LatencyHistogram tabComplete = new LatencyHistogram();
+
+        private Stats(String pattern) {
+            this.pattern = pattern;
+            for (int i = 0; i < failures.length; i++) {
+                failures[i] = new LongAdder();
+            }
+        }
+
+        public void invoked() {
+            invocations.increment();
+        }
+
+        public void failed(Failure failure) {
+            failures[failure.ordinal()].increment();
+        }
+
+        public void parsed(long nanos) {
+            parse.record(nanos);
+        }
+
+        public void completed(long nanos) {
+            invoke.record(nanos);
+        }
+
+        public void tabCompleted(long nanos) {
+            tabComplete.record(nanos);
+        }
+
+        void reset() {
+            invocations.reset();
+            for (LongAdder failure : failures) {
+                failure.reset();
+            }
+            parse.reset();
+            invoke.reset();
+            tabComplete.reset();
+        }
+
+        Snapshot snapshot() {
+            Map<Failure, Long> failureCounts = new EnumMap<>(Failure.class);
+            for (Failure failure : Failure.values()) {
+                failureCounts.put(failure, failures[failure.ordinal()].sum());
+            }
+            return new Snapshot(pattern, invocations.sum(), failureCounts, parse.snapshot(), invoke.snapshot(), tabComplete.snapshot());
+        }
+    }
+
+    public static final class Snapshot {
+        private final String pattern;
+        private final long invocations;
+        private final Map<Failure, Long> failures;
+        private final LatencyHistogram.Snapshot parse;
+        private final LatencyHistogram.Snapshot invoke;
+        private final LatencyHistogram.Snapshot tabComplete;
+
+        private Snapshot(String pattern, long invocations, Map<Failure, Long> failures, LatencyHistogram.Snapshot parse,
+                         LatencyHistogram.Snapshot invoke, LatencyHistogram.Snapshot tabComplete) {
+            this.pattern = pattern;
+            this.invocations = invocations;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.parse = parse;
+            this.invoke = invoke;
+            this.tabComplete = tabComplete;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public Map<Failure, Long> getFailures() {
+            return failures;
+        }
+
+        public LatencyHistogram.Snapshot getParse() {
+            return parse;
+        }
+
+        public LatencyHistogram.Snapshot getInvoke() {
+            return invoke;
+        }
+
+        public LatencyHistogram.Snapshot getTabComplete() {
+            return tabComplete;
+        }
+
+        /**
+         * Flat key/value view, e.g. for writing to a metrics backend or a file.
+         */
+        public Map<String, Long> export() {
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("invocations", invocations);
+            failures.forEach((failure, count) -> values.put("failures." + failure.name().toLowerCase(Locale.ROOT), count));
+            export(values, "parse", parse);
+            export(values, "invoke", invoke);
+            export(values, "tab", tabComplete);
+            return values;
+        }
+
+        private static void export(Map<String, Long> values, String prefix, LatencyHistogram.Snapshot histogram) {
+            values.put(prefix + ".count", histogram.getCount());
+            values.put(prefix + ".mean_ns", histogram.getMeanNanos());
+            values.put(prefix + ".p50_ns", histogram.getPercentileNanos(0.5));
+            values.put(prefix + ".p99_ns", histogram.getPercentileNanos(0.99));
+            values.put(prefix + ".max_ns", histogram.getMaxNanos());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rainchat.rlib.commands.components;
+
+import com.rainchat.rlib.commands.services.RateLimiter;
+
+/**
+ * Registration generated at compile time for a handler class, named {@code <binary name>_CommandRegistration}.
+ * Describes each handler with precomputed patterns and direct-call invokers, so nothing is read reflectively at startup.
+ */
+public interface CommandRegistration<T> {
+
+    String SUFFIX = "_CommandRegistration";
+
+    void register(T handler, Registrar registrar);
+
+    /**
+     * Receives the handlers described by a {@link CommandRegistration}, or found reflectively when none was generated.
+     */
+    interface Registrar {
+
+        /**
+         * @param pattern     the {@code @CommandNode} value
+         * @param permission  the {@code @Permission} value, or {@code null}
+         * @param completions the {@code @Completion} values, or {@code null}
+         * @param cooldown    the limiter for {@code @Cooldown}, shared by the pattern and its aliases, or {@code null}
+         * @param owner       handler name used in error messages
+         */
+        void command(String pattern, String[] aliases, String permission, String[] completions, boolean async,
+                     RateLimiter cooldown, BindingPlan.Slot[] slots, String owner, MethodInvoker invoker);
+
+        void tabCompletion(String[] patterns, boolean threadSafe, MethodInvoker invoker);
+    }
+}
@@ -0,0 +1,194 @@
+package com.rainchat.rlib.commands.components;
+
+import com.rainchat.rlib.commands.services.BkTree;
+import com.rainchat.rlib.commands.services.RateLimiter;
+import org.bukkit.command.CommandSender;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Case-insensitive token trie over the registered command patterns.
+ * Patterns are split once at registration, so resolving an input costs O(depth).
+ * A trie is built completely before {@link SimpleCommand} publishes it and is not modified afterwards.
+ */
+public final class CommandTrie {
+
+    private final Node root = new Node(null, null);
+
+    public Node insert(String pattern) {
+        Node node = root;
+        for (String token : pattern.split(" ")) {
+            if (token.isEmpty()) continue;
+            Node parent = node;
+            node = parent.children.computeIfAbsent(key(token), k -> new Node(token, parent));
+        }
+        return node;
+    }
+
+    /**
+     * Marks every node on the path to {@code node} as leading to a command guarded by {@code permission}.
+     */
+    public void markCommandPath(Node node, String permission) {
+        for (; node != root; node = node.parent) {
+            if (permission == null) {
+                node.subtreeOpen = true;
+            } else {
+                node.subtreePermissions.add(permission);
+            }
+        }
+    }
+
+    public Node findCommand(String name, String[] args, int argCount) {
+        return findDeepest(name, args, argCount, node -> node.commandInvoker != null);
+    }
+
+    public Node findCompletions(String name, String[] args, int argCount) {
+        return findDeepest(name, args, argCount, node -> node.completions != null);
+    }
+
+    public Node findTabCompleter(String name, String[] args, int argCount) {
+        return findDeepest(name, args, argCount, node -> node.tabCompletion != null);
+    }
+
+    /**
+     * Indexes every node's children for {@link #closestChildren}. Called once the trie is complete.
+     */
+    public void buildFuzzyIndex() {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (node.children.isEmpty()) continue;
+            node.fuzzyChildren = new BkTree<>();
+            for (Node child : node.children.values()) {
+                node.fuzzyChildren.add(child.literal, child);
+                pending.push(child);
+            }
+        }
+    }
+
+    /**
+     * Follows the input as far as it matches. The token that did not match, if any, is {@code args[node.depth - 1]}.
+     *
+     * @return the last node reached, or {@code null} if {@code name} is unknown
+     */
+    public Node walkPartially(String name, String[] args, int argCount) {
+        Node node = root.children.get(key(name));
+        for (int i = 0; node != null && i < argCount; i++) {
+            Node child = node.children.get(key(args[i]));
+            if (child == null) break;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Subcommands of {@code node} spelled like {@code token} that the sender may use, closest first.
+     *
+     * @param permissionCache answers permission checks, or {@code null} to ask the sender
+     */
+    public List<String> closestChildren(Node node, String token, CommandSender sender, PermissionCache permissionCache, int limit) {
+        if (node.fuzzyChildren == null) return Collections.emptyList();
+        List<String> literals = new ArrayList<>();
+        for (Node child : node.fuzzyChildren.search(token, BkTree.tolerance(token), limit, child -> child.isVisibleTo(sender, permissionCache))) {
+            literals.add(child.literal);
+        }
+        return literals;
+    }
+
+    /**
+     * Follows the input exactly and returns the node it ends on, or {@code null} if the path does not exist.
+     */
+    public Node walk(String name, String[] args, int argCount) {
+        Node node = root.children.get(key(name));
+        for (int i = 0; node != null && i < argCount; i++) {
+            node = node.children.get(key(args[i]));
+        }
+        return node;
+    }
+
+    private Node findDeepest(String name, String[] args, int argCount, Predicate<Node> accept) {
+        Node node = root.children.get(key(name));
+        Node best = null;
+        for (int i = 0; node != null; i++) {
+            if (accept.test(node)) best = node;
+            if (i >= argCount) break;
+            node = node.children.get(key(args[i]));
+        }
+        return best;
+    }
+
+    private static String key(String token) {
+        return token.toLowerCase(Locale.ROOT);
+    }
+
+    public static final class Node {
+        final String literal;
+        final String path;
+        final Node parent;
+        final int depth;
+        final Map<String, Node> children = new LinkedHashMap<>();
+        final Set<String> subtreePermissions = new HashSet<>();
+        boolean subtreeOpen;
+        BkTree<Node> fuzzyChildren;
+
+        String pattern;
+        BindingPlan plan;
+        MethodInvoker commandInvoker;
+        boolean async;
+        String permission;
+        RateLimiter cooldown;
+        String[] completions;
+        MethodInvoker tabCompletion;
+        boolean tabCompletionThreadSafe;
+        CommandMetrics.Stats stats;
+
+        private Node(String literal, Node parent) {
+            this.literal = literal;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.path = parent == null ? "" : parent.parent == null ? literal : parent.path + " " + literal;
+        }
+
+        public String getLiteral() {
+            return literal;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public Collection<Node> getChildren() {
+            return children.values();
+        }
+
+        /**
+         * Whether the sender may run at least one command below this node.
+         */
+        public boolean isVisibleTo(CommandSender sender) {
+            return isVisibleTo(sender, null);
+        }
+
+        /**
+         * @param permissionCache answers permission checks, or {@code null} to ask the sender
+         */
+        public boolean isVisibleTo(CommandSender sender, PermissionCache permissionCache) {
+            if (subtreeOpen) return true;
+            for (String permission : subtreePermissions) {
+                if (permissionCache != null ? permissionCache.hasPermission(sender, permission) : sender.hasPermission(permission)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
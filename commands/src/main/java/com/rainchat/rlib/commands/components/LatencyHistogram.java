@@ -0,0 +1,93 @@
+package com.rainchat.rlib.commands.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two nanosecond buckets.
+ * Recording is a few atomic adds; percentiles are reported as the upper bound of their bucket.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        // Bucket i holds [2^(i-1), 2^i - 1]; zero goes to bucket 0.
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        total.add(nanos);
+
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Zeroes the histogram. Records made while it runs may be partly kept.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.sum(), total.sum(), max.get());
+    }
+
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] buckets, long count, long total, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * @param quantile between 0 and 1, e.g. 0.99
+         */
+        public long getPercentileNanos(double quantile) {
+            long seen = 0;
+            long target = (long) Math.ceil(quantile * count);
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.rainchat.rlib.commands.components;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Handler method bound once to its instance. Calls go through a spread {@link MethodHandle};
+ * methods that cannot be unreflected fall back to {@link Method#invoke}. Either way, what the handler throws
+ * reaches the caller as it is, not wrapped in an {@link InvocationTargetException}.
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+
+    static MethodInvoker bind(Object instance, Method method) {
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(instance);
+            }
+            handle = handle.asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return reflective(instance, method);
+        }
+
+        final MethodHandle invoker = handle;
+        return args -> {
+            try {
+                return invoker.invokeExact(args);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    static MethodInvoker reflective(Object instance, Method method) {
+        return args -> {
+            try {
+                return method.invoke(instance, args);
+            } catch (InvocationTargetException e) {
+                throw rethrow(e.getCause());
+            }
+        };
+    }
+
+    /**
+     * @throws Exception whatever the handler threw
+     */
+    Object invoke(Object[] args) throws Exception;
+
+    /**
+     * Errors are thrown right away; a throwable that is neither an exception nor an error is wrapped.
+     */
+    private static Exception rethrow(Throwable thrown) {
+        if (thrown instanceof Error) throw (Error) thrown;
+        if (thrown instanceof Exception) return (Exception) thrown;
+        return new UndeclaredThrowableException(thrown);
+    }
+}
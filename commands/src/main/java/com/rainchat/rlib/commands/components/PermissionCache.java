@@ -0,0 +1,98 @@
+package com.rainchat.rlib.commands.components;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers each player's answers for the {@code @Permission} nodes of the registered commands, and the
+ * subcommands each trie node shows them, so repeated dispatch and tab presses do not go back to the
+ * permission backend.
+ * <p>
+ * Bukkit has no event for changed permissions. Entries are dropped on quit and world change by
+ * {@link PermissionCacheListener} and expire after {@link #setTimeToLive a short time}; plugins that do get
+ * notified, e.g. by their permission plugin's recalculation event, call {@link #invalidate(UUID)}.
+ * Only players are cached; other senders are asked every time.
+ */
+public final class PermissionCache {
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long timeToLiveNanos = TimeUnit.SECONDS.toNanos(10);
+
+    public boolean hasPermission(CommandSender sender, String permission) {
+        Entry entry = entry(sender);
+        if (entry == null) return sender.hasPermission(permission);
+        return entry.decisions.computeIfAbsent(permission, sender::hasPermission);
+    }
+
+    /**
+     * Literals of the children of {@code node} leading to at least one command the sender may run.
+     * The list is shared and must not be modified.
+     */
+    public List<String> visibleChildren(CommandSender sender, CommandTrie.Node node) {
+        Entry entry = entry(sender);
+        if (entry == null) return collectVisibleChildren(sender, node);
+        return entry.children.computeIfAbsent(node, n -> collectVisibleChildren(sender, n));
+    }
+
+    private List<String> collectVisibleChildren(CommandSender sender, CommandTrie.Node node) {
+        List<String> literals = new ArrayList<>();
+        for (CommandTrie.Node child : node.getChildren()) {
+            if (child.isVisibleTo(sender, this)) {
+                literals.add(child.getLiteral());
+            }
+        }
+        return Collections.unmodifiableList(literals);
+    }
+
+    private Entry entry(CommandSender sender) {
+        if (!(sender instanceof Player) || timeToLiveNanos <= 0) return null;
+        UUID uuid = ((Player) sender).getUniqueId();
+        long now = System.nanoTime();
+        Entry entry = entries.get(uuid);
+        if (entry == null || now - entry.expiresAt >= 0) {
+            // Racing callers may each start an entry; the last one stays, which only costs a repeated lookup
+            entry = new Entry(now + timeToLiveNanos);
+            entries.put(uuid, entry);
+        }
+        return entry;
+    }
+
+    public void invalidate(UUID player) {
+        entries.remove(player);
+    }
+
+    public void invalidate(Player player) {
+        invalidate(player.getUniqueId());
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * How long answers are trusted without an invalidation; {@code 0} turns the cache off.
+     */
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+        // Keyed by node identity; nodes of replaced tries just stop being asked for
+        private final Map<CommandTrie.Node, List<String>> children = new ConcurrentHashMap<>();
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
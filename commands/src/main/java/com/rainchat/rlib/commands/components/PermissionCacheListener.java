@@ -0,0 +1,30 @@
+package com.rainchat.rlib.commands.components;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Drops a player's cached permission answers when they leave or change worlds, where world-specific
+ * permissions may apply.
+ */
+public final class PermissionCacheListener implements Listener {
+
+    private final PermissionCache permissionCache;
+
+    public PermissionCacheListener(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        permissionCache.invalidate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        permissionCache.invalidate(event.getPlayer());
+    }
+}
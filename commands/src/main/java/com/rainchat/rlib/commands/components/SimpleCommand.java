@@ -1,224 +1,480 @@
 package com.rainchat.rlib.commands.components;
 
+import com.rainchat.rlib.commands.annotation.Async;
 import com.rainchat.rlib.commands.annotation.Completion;
-import com.rainchat.rlib.commands.annotation.Option;
+import com.rainchat.rlib.commands.annotation.Cooldown;
 import com.rainchat.rlib.commands.annotation.Permission;
+import com.rainchat.rlib.commands.jfr.CommandCompletionEvent;
+import com.rainchat.rlib.commands.jfr.CommandDispatchEvent;
+import com.rainchat.rlib.commands.jfr.CommandInvokeEvent;
+import com.rainchat.rlib.commands.jfr.CommandParseEvent;
+import com.rainchat.rlib.commands.services.CompletionSessions;
+import com.rainchat.rlib.commands.services.CompletionSource;
 import com.rainchat.rlib.commands.services.MessageService;
+import com.rainchat.rlib.commands.services.ParseResult;
+import com.rainchat.rlib.commands.services.RateLimiter;
 import com.rainchat.rlib.commands.services.TabCompleterService;
 import com.rainchat.rlib.commands.services.TypeParserService;
 import org.bukkit.command.*;
-import org.bukkit.entity.Player;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SimpleCommand implements CommandExecutor, TabCompleter {
 
-    private final Map<String, Method> commandMethods = new HashMap<>();
-    private final Map<String, String[]> completionMethods = new HashMap<>();
-    private final Map<String, String> permissionMethods = new HashMap<>();
-    private final Map<String, Method> tabCompletionMethods = new HashMap<>();
-    private final Map<Method, Object> methodInstances = new HashMap<>();
+    private static final int MAX_CORRECTIONS = 3;
+
+    private final List<Handler> handlers = new ArrayList<>();
+    private volatile CommandTrie commandTrie = new CommandTrie();
     private final TypeParserService typeParserService;
     private final TabCompleterService tabCompleterService;
     private final MessageService message;
+    private final AsyncCommandExecutor asyncExecutor;
+    private final CommandMetrics metrics;
+    private final PermissionCache permissionCache;
+    private final Logger logger;
 
     public SimpleCommand(TypeParserService typeParserService, TabCompleterService tabCompleterService, MessageService message) {
+        this(typeParserService, tabCompleterService, message, null, null, null, Logger.getLogger(SimpleCommand.class.getName()));
+    }
+
+    /**
+     * @param asyncExecutor runs {@code @Async} handlers, or {@code null} to run them on the calling thread
+     * @param metrics       records per-pattern counters and latencies, or {@code null} for none
+     * @param permissionCache answers {@code @Permission} checks and subcommand listings, or {@code null} to ask the sender
+     * @param logger        receives handler and completer failures, normally the owning plugin's logger
+     */
+    public SimpleCommand(TypeParserService typeParserService, TabCompleterService tabCompleterService, MessageService message,
+                         AsyncCommandExecutor asyncExecutor, CommandMetrics metrics, PermissionCache permissionCache, Logger logger) {
         this.typeParserService = typeParserService;
         this.tabCompleterService = tabCompleterService;
         this.message = message;
+        this.asyncExecutor = asyncExecutor;
+        this.metrics = metrics;
+        this.permissionCache = permissionCache;
+        this.logger = logger;
     }
 
-    public void addCommand(Object instance, Method method, String commandName) {
-        commandMethods.put(commandName, method);
-        methodInstances.put(method, instance);
+    public synchronized void addCommand(Object instance, Method method, String commandName) {
+        Completion completion = method.getAnnotation(Completion.class);
+        Permission permission = method.getAnnotation(Permission.class);
+        Cooldown cooldown = method.getAnnotation(Cooldown.class);
+        stageCommand(null, commandName, BindingPlan.compile(method, typeParserService), MethodInvoker.bind(instance, method),
+                permission != null ? permission.value() : null,
+                completion != null ? completion.value() : null,
+                method.isAnnotationPresent(Async.class),
+                cooldown != null ? new RateLimiter(cooldown.value(), cooldown.unit(), cooldown.burst()) : null);
+        publish();
+    }
 
-        if (method.isAnnotationPresent(Completion.class)) {
-            Completion completion = method.getAnnotation(Completion.class);
-            completionMethods.put(commandName, completion.value());
-        }
+    public synchronized void addCompletion(Object instance, Method method, String commandName) {
+        stageCompletion(null, commandName, MethodInvoker.bind(instance, method), false);
+        publish();
+    }
 
-        if (method.isAnnotationPresent(Permission.class)) {
-            Permission completionFor = method.getAnnotation(Permission.class);
-            permissionMethods.put(commandName, completionFor.value());
-        }
+    /**
+     * Records a command handler without publishing it; it becomes visible on the next {@link #publish()}.
+     * Plan and metadata are resolved by the caller, e.g. from a generated {@link CommandRegistration}.
+     *
+     * @param owner    the handler object, used by {@link #unstage(Object)}
+     * @param cooldown limiter checked before parsing, or {@code null}; pass the same one for a pattern and its aliases
+     */
+    public synchronized void stageCommand(Object owner, String commandName, BindingPlan plan, MethodInvoker invoker,
+                                          String permission, String[] completions, boolean async, RateLimiter cooldown) {
+        handlers.add(Handler.command(owner, commandName, plan, invoker, permission, completions, asyncExecutor != null && async, cooldown));
+    }
+
+    public synchronized void stageCompletion(Object owner, String commandName, MethodInvoker invoker, boolean threadSafe) {
+        handlers.add(Handler.completion(owner, commandName, invoker, threadSafe));
+    }
+
+    /**
+     * Drops the staged handlers of {@code owner}.
+     *
+     * @return whether any handler was removed
+     */
+    public synchronized boolean unstage(Object owner) {
+        return handlers.removeIf(handler -> handler.owner == owner);
     }
 
-    public void addCompletion(Object instance, Method method, String commandName) {
-        tabCompletionMethods.put(commandName, method);
-        methodInstances.put(method, instance);
+    public synchronized boolean isEmpty() {
+        return handlers.isEmpty();
+    }
+
+    /**
+     * Builds a new trie from the staged handlers and swaps it in. Dispatch and completion always read
+     * one published trie, so they never see a registration half applied.
+     */
+    public synchronized void publish() {
+        CommandTrie trie = new CommandTrie();
+        for (Handler handler : handlers) {
+            handler.applyTo(trie);
+        }
+        trie.buildFuzzyIndex();
+        commandTrie = trie;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        String fullCommand = command.getName() + " " + String.join(" ", args);
-        Map.Entry<String, Method> bestMatch = findBestMatchEntry(fullCommand, commandMethods);
-
-        if (bestMatch != null) {
-            String permission = permissionMethods.get(bestMatch.getKey());
-            if (permission != null && !sender.hasPermission(permission)) {
-                message.sendMessage("command.error.permission", sender, args);
-                return false;
+        Rejection rejection = dispatch(sender, command, label, args);
+        if (rejection == null) return true;
+        if (rejection.getCause() != null) {
+            logger.log(Level.SEVERE, "Error while running /" + label + " " + String.join(" ", args), rejection.getCause());
+        }
+        message.sendMessage(rejection.getMessageId(), sender, label, rejection.getArguments());
+        return false;
+    }
+
+    /**
+     * Runs a command line like {@link #onCommand} but hands back the message the sender would have been sent
+     * instead of sending it, for callers that report failures themselves. An exception thrown by a synchronous
+     * handler is not printed either; it comes back as the rejection's {@link Rejection#getCause() cause}.
+     *
+     * @return {@code null} if the handler ran or was submitted to the async executor, otherwise why it did not
+     */
+    public Rejection dispatch(CommandSender sender, Command command, String label, String[] args) {
+        CommandDispatchEvent event = new CommandDispatchEvent();
+        event.begin();
+        CommandArguments arguments = CommandArguments.of(args);
+        CommandTrie commandTrie = this.commandTrie;
+        CommandTrie.Node bestMatch = commandTrie.findCommand(command.getName(), arguments.tokens(), arguments.length());
+
+        Rejection rejection = bestMatch != null
+                ? execute(bestMatch, sender, label, args, arguments)
+                : unknownCommand(commandTrie, sender, command, args, arguments);
+        event.commit(command.getName(), bestMatch != null ? bestMatch.pattern : null, sender,
+                rejection != null ? rejection.getMessageId() : null);
+        return rejection;
+    }
+
+    private Rejection execute(CommandTrie.Node bestMatch, CommandSender sender, String label, String[] args, CommandArguments arguments) {
+        CommandMetrics.Stats stats = stats(bestMatch);
+        long start = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.invoked();
+
+        String permission = bestMatch.permission;
+        if (permission != null && !hasPermission(sender, permission)) {
+            if (stats != null) stats.failed(CommandMetrics.Failure.PERMISSION);
+            return new Rejection("command.error.permission", args);
+        }
+        if (bestMatch.cooldown != null) {
+            long wait = bestMatch.cooldown.tryAcquire(sender);
+            if (wait > 0) {
+                if (stats != null) stats.failed(CommandMetrics.Failure.COOLDOWN);
+                String seconds = String.format(Locale.ROOT, "%.1f", Math.max(wait, TimeUnit.MILLISECONDS.toNanos(100)) / 1e9);
+                return new Rejection("command.error.cooldown", new String[]{seconds});
             }
-            try {
-                String[] commandParts = bestMatch.getKey().split(" ");
-                String[] remainingArgs = Arrays.copyOfRange(fullCommand.split(" "), commandParts.length, fullCommand.split(" ").length);
-
-                Parameter[] parameters = bestMatch.getValue().getParameters();
-                Object[] parsedArgs = new Object[parameters.length];
-                int argIndex = 0;
-
-                for (int i = 0; i < parameters.length; i++) {
-                    if (CommandSender.class.isAssignableFrom(parameters[i].getType())) {
-                        parsedArgs[i] = sender;
-
-                        if (ConsoleCommandSender.class.isAssignableFrom(parameters[i].getType()) && !(sender instanceof ConsoleCommandSender)) {
-                            message.sendMessage("command.error.player-only", sender, args);
-                            return false;
-                        }
-
-                        if (Player.class.isAssignableFrom(parameters[i].getType()) && !(sender instanceof Player)) {
-                            message.sendMessage("command.error.console-only", sender, args);
-                            return false;
-                        }
-
-                    } else if (String[].class.isAssignableFrom(parameters[i].getType())) {
-                        parsedArgs[i] = remainingArgs;
-                    } else if (argIndex < remainingArgs.length) {
-                        parsedArgs[i] = typeParserService.parseObject(parameters[i].getType(), remainingArgs[argIndex]);
-                        argIndex++;
-                    } else {
-                        Option option = parameters[i].getAnnotation(Option.class);
-                        if (option != null) {
-                            parsedArgs[i] = typeParserService.parseObject(parameters[i].getType(), option.value());
-                        } else {
-                            message.sendMessage("command.error.no-args", sender, args);
-                            return false;
-                        }
-                    }
+        }
+        Object[] parsedArgs = new Object[bestMatch.plan.size()];
+        arguments.position(bestMatch.depth - 1);
+        CommandParseEvent parseEvent = new CommandParseEvent();
+        parseEvent.begin();
+        BindingPlan.Failure failure = bestMatch.plan.bind(sender, arguments, parsedArgs);
+        parseEvent.commit(bestMatch.pattern, arguments.length() - (bestMatch.depth - 1), failure != null ? failure.getMessageId() : null);
+        if (failure != null) {
+            if (stats != null) stats.failed(failureCause(failure.getMessageId()));
+            List<String> closest = ParseResult.INVALID_VALUE.getError().equals(failure.getMessageId())
+                    ? closestValues(bestMatch, failure, sender) : Collections.emptyList();
+            if (!closest.isEmpty()) {
+                return new Rejection("command.error.did-you-mean", new String[]{failure.getArguments()[0], String.join(", ", closest)});
+            }
+            return new Rejection(failure.getMessageId(), failure.getArguments() != null ? failure.getArguments() : args);
+        }
+        long parsed = stats != null ? System.nanoTime() : 0;
+        if (stats != null) stats.parsed(parsed - start);
+
+        if (bestMatch.async) {
+            MethodInvoker invoker = bestMatch.commandInvoker;
+            String pattern = bestMatch.pattern;
+            asyncExecutor.submit(sender, () -> {
+                long invokeStart = stats != null ? System.nanoTime() : 0;
+                CommandInvokeEvent invokeEvent = new CommandInvokeEvent();
+                invokeEvent.begin();
+                Exception thrown = null;
+                try {
+                    invoker.invoke(parsedArgs);
+                } catch (Exception e) {
+                    thrown = e;
+                    if (stats != null) stats.failed(CommandMetrics.Failure.EXCEPTION);
+                    logger.log(Level.SEVERE, "Error while running /" + label + " " + String.join(" ", args) + " asynchronously", e);
+                    asyncExecutor.runSync(() -> message.sendMessage("command.error.no-message", sender, label, args));
                 }
+                invokeEvent.commit(pattern, true, thrown);
+                if (stats != null) stats.completed(System.nanoTime() - invokeStart);
+            });
+            return null;
+        }
 
-                bestMatch.getValue().invoke(methodInstances.get(bestMatch.getValue()), parsedArgs);
-                return true;
-            } catch (Exception e) {
-                e.printStackTrace();
-                message.sendMessage("command.error.wrong-usage", sender, args);
-                return false;
+        CommandInvokeEvent invokeEvent = new CommandInvokeEvent();
+        invokeEvent.begin();
+        Exception thrown = null;
+        try {
+            bestMatch.commandInvoker.invoke(parsedArgs);
+            return null;
+        } catch (Exception e) {
+            // Only the handler itself can throw here; bad input was rejected while binding.
+            thrown = e;
+            if (stats != null) stats.failed(CommandMetrics.Failure.EXCEPTION);
+            return new Rejection("command.error.wrong-usage", args, e);
+        } finally {
+            invokeEvent.commit(bestMatch.pattern, false, thrown);
+            if (stats != null) stats.completed(System.nanoTime() - parsed);
+        }
+    }
+
+    /**
+     * No command on this path; points out a subcommand the input was probably meant to be.
+     */
+    private Rejection unknownCommand(CommandTrie commandTrie, CommandSender sender, Command command, String[] args,
+                                     CommandArguments arguments) {
+        CommandTrie.Node reached = commandTrie.walkPartially(command.getName(), arguments.tokens(), arguments.length());
+        int unmatched = reached != null ? reached.depth - 1 : -1;
+        if (unmatched >= 0 && unmatched < arguments.length()) {
+            String token = arguments.tokens()[unmatched];
+            List<String> closest = commandTrie.closestChildren(reached, token, sender, permissionCache, MAX_CORRECTIONS);
+            if (!closest.isEmpty()) {
+                return new Rejection("command.error.did-you-mean", new String[]{token, String.join(", ", closest)});
             }
         }
-        return false;
+        return new Rejection("command.error.exists", args);
     }
 
-    @Override
-    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        String fullCommand = command.getName() + " " + String.join(" ", Arrays.copyOf(args, args.length - 1));
+    /**
+     * Values close to a rejected argument: from the argument's completion source when it has one, since that
+     * is what the sender is offered while typing, otherwise from the parser.
+     */
+    private List<String> closestValues(CommandTrie.Node node, BindingPlan.Failure failure, CommandSender sender) {
+        int index = failure.getArgumentIndex();
+        if (node.completions != null && index >= 0 && index < node.completions.length) {
+            CompletionSource source = tabCompleterService.getSource(node.completions[index], sender, String.class);
+            List<String> closest = source.closest(failure.getArguments()[0], MAX_CORRECTIONS);
+            if (!closest.isEmpty()) return closest;
+        }
+        return failure.closest(MAX_CORRECTIONS);
+    }
 
-        List<String> subcommands = getSubcommands(command.getName(), args, sender);
-        if (!subcommands.isEmpty()) {
-            return filterSuggestions(subcommands, args.length > 0 ? args[args.length - 1] : "");
+    private CommandMetrics.Stats stats(CommandTrie.Node node) {
+        if (metrics == null || !metrics.isEnabled()) return null;
+        CommandMetrics.Stats stats = node.stats;
+        if (stats == null) {
+            node.stats = stats = metrics.stats(node.path);
         }
+        return stats;
+    }
 
-        Map.Entry<String[], Integer> bestCompletionsEntry = findBestCompletions(fullCommand, completionMethods);
-        String[] bestCompletions = bestCompletionsEntry.getKey();
-        int bestMatchLength = bestCompletionsEntry.getValue();
+    private static CommandMetrics.Failure failureCause(String messageId) {
+        switch (messageId) {
+            case "command.error.no-args":
+                return CommandMetrics.Failure.NO_ARGS;
+            case "command.error.player-only":
+            case "command.error.console-only":
+                return CommandMetrics.Failure.SENDER;
+            default:
+                return CommandMetrics.Failure.PARSE;
+        }
+    }
 
-        if (bestCompletions != null) {
-            String[] fullCommandParts = fullCommand.split(" ");
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (!tabCompleterService.tryTabComplete(sender)) return new ArrayList<>();
+        return complete(sender, command, args, false);
+    }
+
+    /**
+     * Computes suggestions for the typed arguments.
+     *
+     * @param offMainThread whether the caller is off the main thread
+     * @return the suggestions, or {@code null} if {@code offMainThread} is set and a completer that is not thread-safe is needed
+     */
+    public List<String> complete(CommandSender sender, Command command, String[] rawArgs, boolean offMainThread) {
+        long start = metrics != null && metrics.isEnabled() ? System.nanoTime() : 0;
+        String[] args = CommandArguments.of(rawArgs).tokens();
+        int typed = args.length - 1;
+        String current = args.length > 0 ? args[args.length - 1] : "";
+
+        CommandTrie commandTrie = this.commandTrie;
+        CommandTrie.Node node = commandTrie.walk(command.getName(), args, typed);
+        CompletionSessions sessions = tabCompleterService.getSessions();
+        int limit = tabCompleterService.getSuggestionLimit();
+        List<String> narrowed = sessions.narrow(sender, commandTrie, command.getName(), args, limit);
+        if (narrowed != null) {
+            return node != null ? recordTab(node, start, narrowed) : narrowed;
+        }
 
-            int completionIndex = fullCommandParts.length - bestMatchLength; // Учитываем длину подкоманды
+        List<String> subcommands = getSubcommands(node, sender);
+        if (!subcommands.isEmpty()) {
+            List<String> suggestions = filterSuggestions(subcommands, current);
+            sessions.remember(sender, commandTrie, command.getName(), args, suggestions, limit);
+            return recordTab(node, start, suggestions);
+        }
 
-            if (completionIndex < bestCompletions.length) {
-                String completion = bestCompletions[completionIndex];
-                List<String> suggestions = tabCompleterService.getCompletions(completion, sender, String.class);
-                return filterSuggestions(suggestions, args.length > 0 ? args[args.length - 1] : "");
+        CommandTrie.Node completionNode = commandTrie.findCompletions(command.getName(), args, typed);
+        if (completionNode != null) {
+            int completionIndex = args.length - completionNode.depth; // Учитываем длину подкоманды
+
+            if (completionIndex >= 0 && completionIndex < completionNode.completions.length) {
+                String completion = completionNode.completions[completionIndex];
+                if (offMainThread && !tabCompleterService.isThreadSafe(completion)) return null;
+                CommandCompletionEvent event = new CommandCompletionEvent();
+                event.begin();
+                CompletionSource source = tabCompleterService.getSource(completion, sender, String.class);
+                List<String> suggestions = new ArrayList<>(source.suggest(current, limit));
+                event.commit(command.getName(), completion, current, suggestions.size());
+                if (source.isNarrowable()) {
+                    sessions.remember(sender, commandTrie, command.getName(), args, suggestions, limit);
+                }
+                return recordTab(completionNode, start, suggestions);
             }
         }
 
-        Map.Entry<String, Method> bestMatchEntry = findBestMatchEntry(fullCommand, tabCompletionMethods);
-        if (bestMatchEntry != null) {
+        CommandTrie.Node tabNode = commandTrie.findTabCompleter(command.getName(), args, typed);
+        if (tabNode != null) {
+            if (offMainThread && !tabNode.tabCompletionThreadSafe) return null;
             try {
-                String[] commandParts = bestMatchEntry.getKey().split(" ");
-                String[] remainingArgs = Arrays.copyOfRange(fullCommand.split(" "), commandParts.length, fullCommand.split(" ").length + 1);
-                List<String> suggestions = (List<String>) bestMatchEntry.getValue().invoke(methodInstances.get(bestMatchEntry.getValue()), sender, command, command.getName(), remainingArgs);
-                return filterSuggestions(suggestions, args.length > 0 ? args[args.length - 1] : "");
+                String[] remainingArgs = Arrays.copyOfRange(args, tabNode.depth - 1, args.length);
+                CommandCompletionEvent event = new CommandCompletionEvent();
+                event.begin();
+                Object result = tabNode.tabCompletion.invoke(new Object[]{sender, command, command.getName(), remainingArgs});
+                List<?> suggestions = result instanceof List<?> list ? list : Collections.emptyList();
+                if (result != null && !(result instanceof List)) {
+                    logger.warning("Tab completer for \"" + tabNode.path + "\" returned " + result.getClass().getName() + " instead of a List");
+                }
+                event.commit(command.getName(), tabNode.path, current, suggestions.size());
+                return recordTab(tabNode, start, filterSuggestions(suggestions, current));
             } catch (Exception e) {
-                e.printStackTrace();
+                logger.log(Level.WARNING, "Tab completer for \"" + tabNode.path + "\" failed", e);
             }
         }
 
-        return new ArrayList<>();
+        return node != null ? recordTab(node, start, new ArrayList<>()) : new ArrayList<>();
     }
 
-    private Map.Entry<String, Method> findBestMatchEntry(String fullCommand, Map<String, Method> methods) {
-        Map.Entry<String, Method> bestMatchEntry = null;
-        int bestMatchLength = 0;
+    private List<String> recordTab(CommandTrie.Node node, long start, List<String> suggestions) {
+        CommandMetrics.Stats stats = stats(node);
+        if (stats != null) stats.tabCompleted(System.nanoTime() - start);
+        return suggestions;
+    }
 
-        for (Map.Entry<String, Method> entry : methods.entrySet()) {
-            String commandPattern = entry.getKey();
-            String[] commandParts = commandPattern.split(" ");
+    private List<String> getSubcommands(CommandTrie.Node node, CommandSender sender) {
+        if (node == null) return Collections.emptyList();
+        if (permissionCache != null) return permissionCache.visibleChildren(sender, node);
 
-            if (fullCommand.startsWith(commandPattern) && commandParts.length > bestMatchLength) {
-                bestMatchEntry = entry;
-                bestMatchLength = commandParts.length;
+        List<String> subcommands = new ArrayList<>();
+        for (CommandTrie.Node child : node.getChildren()) {
+            if (child.isVisibleTo(sender)) {
+                subcommands.add(child.literal);
             }
         }
+        return subcommands;
+    }
 
-        return bestMatchEntry;
+    private boolean hasPermission(CommandSender sender, String permission) {
+        return permissionCache != null ? permissionCache.hasPermission(sender, permission) : sender.hasPermission(permission);
     }
 
-    private Map.Entry<String[], Integer> findBestCompletions(String fullCommand, Map<String, String[]> completions) {
-        String[] bestCompletions = null;
-        int bestMatchLength = 0;
+    /**
+     * Keeps the suggestions that start with {@code arg}, up to the suggestion limit.
+     * Elements that are not strings, such as nulls from a loosely typed completer, are skipped.
+     */
+    private List<String> filterSuggestions(List<?> suggestions, String arg) {
+        int limit = tabCompleterService.getSuggestionLimit();
+        List<String> filtered = new ArrayList<>();
+        for (Object element : suggestions) {
+            if (filtered.size() >= limit) break;
+            if (element instanceof String suggestion && suggestion.regionMatches(true, 0, arg, 0, arg.length())) {
+                filtered.add(suggestion);
+            }
+        }
+        return filtered;
+    }
 
-        for (Map.Entry<String, String[]> entry : completions.entrySet()) {
-            String commandPattern = entry.getKey();
-            String[] commandParts = commandPattern.split(" ");
+    /**
+     * A command line that did not run: the {@link com.rainchat.rlib.commands.services.MessageService} message
+     * and the arguments it is rendered with.
+     */
+    public static final class Rejection {
+        private final String messageId;
+        private final String[] arguments;
+        private final Exception cause;
+
+        private Rejection(String messageId, String[] arguments) {
+            this(messageId, arguments, null);
+        }
 
-            if (fullCommand.startsWith(commandPattern) && commandParts.length > bestMatchLength) {
-                bestCompletions = entry.getValue();
-                bestMatchLength = commandParts.length;
-            }
+        private Rejection(String messageId, String[] arguments, Exception cause) {
+            this.messageId = messageId;
+            this.arguments = arguments;
+            this.cause = cause;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public String[] getArguments() {
+            return arguments;
         }
 
-        return new AbstractMap.SimpleEntry<>(bestCompletions, bestMatchLength);
+        /**
+         * @return what the handler threw, or {@code null} if it was not called or returned normally
+         */
+        public Exception getCause() {
+            return cause;
+        }
     }
 
+    private static final class Handler {
+        private final Object owner;
+        private final String pattern;
+        private final BindingPlan plan;
+        private final MethodInvoker invoker;
+        private final String permission;
+        private final String[] completions;
+        private final boolean async;
+        private final boolean threadSafe;
+        private final RateLimiter cooldown;
+
+        private Handler(Object owner, String pattern, BindingPlan plan, MethodInvoker invoker, String permission,
+                        String[] completions, boolean async, boolean threadSafe, RateLimiter cooldown) {
+            this.owner = owner;
+            this.pattern = pattern;
+            this.plan = plan;
+            this.invoker = invoker;
+            this.permission = permission;
+            this.completions = completions;
+            this.async = async;
+            this.threadSafe = threadSafe;
+            this.cooldown = cooldown;
+        }
 
-    private List<String> getSubcommands(String alias, String[] args, CommandSender sender) {
-        List<String> subcommands = new ArrayList<>();
-        String fullCommand = alias + " " + String.join(" ", Arrays.copyOf(args, args.length - 1));
-        for (String commandPattern : commandMethods.keySet()) {
-            String permission = permissionMethods.get(commandPattern);
-            if (permission != null && !sender.hasPermission(permission)) {
-                continue;
-            }
+        static Handler command(Object owner, String pattern, BindingPlan plan, MethodInvoker invoker, String permission,
+                               String[] completions, boolean async, RateLimiter cooldown) {
+            return new Handler(owner, pattern, plan, invoker, permission, completions, async, false, cooldown);
+        }
 
-            String[] commandParts = commandPattern.split(" ");
-            String[] fullCommandParts = fullCommand.split(" ");
-            if (commandParts.length > fullCommandParts.length) {
-                boolean match = true;
-                for (int i = 0; i < fullCommandParts.length; i++) {
-                    if (!commandParts[i].equalsIgnoreCase(fullCommandParts[i])) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    subcommands.add(commandParts[fullCommandParts.length]);
-                }
-            }
+        static Handler completion(Object owner, String pattern, MethodInvoker invoker, boolean threadSafe) {
+            return new Handler(owner, pattern, null, invoker, null, null, false, threadSafe, null);
         }
-        return subcommands;
-    }
 
-    private List<String> filterSuggestions(List<String> suggestions, String arg) {
-        List<String> filtered = new ArrayList<>();
-        for (String suggestion : suggestions) {
-            if (suggestion.toLowerCase().startsWith(arg.toLowerCase())) {
-                filtered.add(suggestion);
+        void applyTo(CommandTrie trie) {
+            CommandTrie.Node node = trie.insert(pattern);
+            if (plan == null) {
+                node.tabCompletion = invoker;
+                node.tabCompletionThreadSafe = threadSafe;
+                return;
             }
+
+            node.pattern = pattern;
+            node.plan = plan;
+            node.commandInvoker = invoker;
+            node.async = async;
+            node.cooldown = cooldown;
+            if (completions != null) node.completions = completions;
+            if (permission != null) node.permission = permission;
+            trie.markCommandPath(node, node.permission);
         }
-        return filtered;
     }
 }
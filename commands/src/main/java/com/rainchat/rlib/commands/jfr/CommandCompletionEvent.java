@@ -0,0 +1,47 @@
+package com.rainchat.rlib.commands.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One completer call: a completion source such as {@code @player}, a registered completer or a
+ * {@link com.rainchat.rlib.commands.annotation.TabComplete} handler.
+ */
+@Name("rlib.commands.Completion")
+@Label("Command Completion")
+@Category({"RLib", "Commands"})
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CommandCompletionEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Completer")
+    @Description("The completion parameter, e.g. @player, or the pattern of the @TabComplete handler")
+    String completer;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Suggestions")
+    int suggestions;
+
+    /**
+     * @param command the command name, or {@code null} outside of a command's completion
+     */
+    public void commit(String command, String completer, String input, int suggestions) {
+        end();
+        if (!shouldCommit()) return;
+        this.command = command;
+        this.completer = completer;
+        this.inputLength = input != null ? input.length() : 0;
+        this.suggestions = suggestions;
+        commit();
+    }
+}
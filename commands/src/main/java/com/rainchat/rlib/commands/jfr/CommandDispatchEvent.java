@@ -0,0 +1,60 @@
+package com.rainchat.rlib.commands.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * One executed command line, from lookup to the handler returning or being handed to the async executor.
+ * Enable or tune it like any JFR event, e.g. {@code -XX:StartFlightRecording:rlib.commands.Dispatch#threshold=0ms}.
+ */
+@Name("rlib.commands.Dispatch")
+@Label("Command Dispatch")
+@Category({"RLib", "Commands"})
+@Description("A command line run by a CommandController")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CommandDispatchEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Pattern")
+    @Description("The matched handler pattern, or null if no handler matched")
+    String pattern;
+
+    @Label("Sender Type")
+    String senderType;
+
+    @Label("Rejection")
+    @Description("The message the sender was sent instead of running the handler, or null if it ran")
+    String rejection;
+
+    /**
+     * Ends the event, then fills it in and commits it if it is recorded and over the threshold.
+     */
+    public void commit(String command, String pattern, CommandSender sender, String rejection) {
+        end();
+        if (!shouldCommit()) return;
+        this.command = command;
+        this.pattern = pattern;
+        this.senderType = senderType(sender);
+        this.rejection = rejection;
+        commit();
+    }
+
+    static String senderType(CommandSender sender) {
+        if (sender instanceof Player) return "player";
+        if (sender instanceof ConsoleCommandSender) return "console";
+        if (sender instanceof BlockCommandSender) return "command block";
+        return sender.getClass().getSimpleName();
+    }
+}
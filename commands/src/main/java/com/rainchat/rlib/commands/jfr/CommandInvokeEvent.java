@@ -0,0 +1,39 @@
+package com.rainchat.rlib.commands.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A command handler running, on the main thread or on the async executor.
+ */
+@Name("rlib.commands.Invoke")
+@Label("Command Handler Invocation")
+@Category({"RLib", "Commands"})
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CommandInvokeEvent extends Event {
+
+    @Label("Pattern")
+    String pattern;
+
+    @Label("Async")
+    boolean async;
+
+    @Label("Exception")
+    @Description("The class of the exception the handler threw, or null")
+    String exception;
+
+    public void commit(String pattern, boolean async, Throwable exception) {
+        end();
+        if (!shouldCommit()) return;
+        this.pattern = pattern;
+        this.async = async;
+        this.exception = exception != null ? exception.getClass().getName() : null;
+        commit();
+    }
+}
@@ -0,0 +1,40 @@
+package com.rainchat.rlib.commands.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Binding the typed arguments of a matched command to its handler's parameters.
+ */
+@Name("rlib.commands.Parse")
+@Label("Command Argument Parsing")
+@Category({"RLib", "Commands"})
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CommandParseEvent extends Event {
+
+    @Label("Pattern")
+    String pattern;
+
+    @Label("Arguments")
+    @Description("Arguments typed after the command path")
+    int arguments;
+
+    @Label("Failure")
+    @Description("The message id of the rejected input, or null if every argument parsed")
+    String failure;
+
+    public void commit(String pattern, int arguments, String failure) {
+        end();
+        if (!shouldCommit()) return;
+        this.pattern = pattern;
+        this.arguments = arguments;
+        this.failure = failure;
+        commit();
+    }
+}
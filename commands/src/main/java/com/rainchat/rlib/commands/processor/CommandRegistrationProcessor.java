@@ -0,0 +1,411 @@
+package com.rainchat.rlib.commands.processor;
+
+import com.rainchat.rlib.commands.annotation.Async;
+import com.rainchat.rlib.commands.annotation.CommandNode;
+import com.rainchat.rlib.commands.annotation.Completion;
+import com.rainchat.rlib.commands.annotation.Cooldown;
+import com.rainchat.rlib.commands.annotation.Greedy;
+import com.rainchat.rlib.commands.annotation.Option;
+import com.rainchat.rlib.commands.annotation.Permission;
+import com.rainchat.rlib.commands.annotation.TabComplete;
+import com.rainchat.rlib.commands.components.CommandRegistration;
+import com.rainchat.rlib.commands.services.NumberSyntax;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Validates {@link CommandNode} and {@link TabComplete} handlers at compile time and generates a
+ * {@link CommandRegistration} for every class declaring them.
+ * <p>
+ * Classes the generated code cannot call directly (private classes or handlers, generic classes) are reported
+ * as notes and keep using reflective registration.
+ */
+@SupportedAnnotationTypes({
+        "com.rainchat.rlib.commands.annotation.CommandNode",
+        "com.rainchat.rlib.commands.annotation.TabComplete"
+})
+public class CommandRegistrationProcessor extends AbstractProcessor {
+
+    private static final String COMPONENTS = "com.rainchat.rlib.commands.components.";
+
+    private static final int SENDER = 0;
+    private static final int REST = 1;
+    private static final int ARGUMENT = 2;
+    private static final int GREEDY = 3;
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+
+        Set<TypeElement> handlerTypes = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    handlerTypes.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        for (TypeElement type : handlerTypes) {
+            List<ExecutableElement> handlers = new ArrayList<>();
+            boolean valid = true;
+            for (Element element : type.getEnclosedElements()) {
+                if (element.getKind() != ElementKind.METHOD) continue;
+                ExecutableElement method = (ExecutableElement) element;
+                if (method.getAnnotation(CommandNode.class) == null && method.getAnnotation(TabComplete.class) == null) continue;
+                valid &= validate(method);
+                handlers.add(method);
+            }
+
+            if (!valid) continue;
+            String reason = unsupported(type, handlers);
+            if (reason != null) {
+                note(type, "No registration generated for " + type.getQualifiedName() + " (" + reason + "), it will be registered reflectively.");
+                continue;
+            }
+            generate(type, handlers);
+        }
+        return false;
+    }
+
+    private boolean validate(ExecutableElement method) {
+        boolean valid = true;
+        CommandNode commandNode = method.getAnnotation(CommandNode.class);
+        if (commandNode != null) {
+            valid &= validatePattern(method, commandNode.value());
+            for (String alias : commandNode.aliases()) {
+                valid &= validatePattern(method, alias);
+            }
+            valid &= validateParameters(method);
+
+            Cooldown cooldown = method.getAnnotation(Cooldown.class);
+            if (cooldown != null && (cooldown.value() <= 0 || cooldown.burst() < 1)) {
+                error(method, "@Cooldown needs a positive interval and a burst of at least 1.");
+                valid = false;
+            }
+        }
+
+        TabComplete tabComplete = method.getAnnotation(TabComplete.class);
+        if (tabComplete != null) {
+            for (String pattern : tabComplete.value()) {
+                valid &= validatePattern(method, pattern);
+            }
+            if (method.getParameters().size() != 4) {
+                error(method, "@TabComplete handler must take (CommandSender, Command, String, String[]).");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean validatePattern(Element element, String pattern) {
+        if (pattern.isBlank()) {
+            error(element, "Command pattern must not be blank.");
+            return false;
+        }
+        if (!pattern.equals(pattern.trim()) || pattern.contains("  ")) {
+            error(element, "Command pattern \"" + pattern + "\" must separate literals with single spaces.");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean validateParameters(ExecutableElement method) {
+        boolean valid = true;
+        boolean greedy = false;
+        for (VariableElement parameter : method.getParameters()) {
+            int kind = kind(parameter);
+            if (kind == SENDER || kind == REST) continue;
+
+            if (greedy) {
+                error(parameter, "@Greedy parameter must be the last argument.");
+                valid = false;
+            }
+            TypeMirror type = parameter.asType();
+            if (kind == GREEDY) {
+                greedy = true;
+                if (!isString(type)) {
+                    error(parameter, "@Greedy parameter must be a String.");
+                    valid = false;
+                }
+                continue;
+            }
+
+            Option option = parameter.getAnnotation(Option.class);
+            if (option != null && !validDefault(type, option.value())) {
+                error(parameter, "Invalid @Option default \"" + option.value() + "\" for " + type + ".");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks a default the way the runtime parsers will read it: numbers with {@link NumberSyntax}, enums by
+     * {@code toString()}, case-insensitively. An enum that overrides {@code toString()} cannot be checked here.
+     * An empty default leaves a reference parameter {@code null}, so only primitives must have one.
+     */
+    private boolean validDefault(TypeMirror type, String value) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            if (value.isEmpty()) return true;
+            // Wrappers are checked like their primitive
+            type = unboxed(type);
+        }
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false");
+            case BYTE:
+                return NumberSyntax.isInteger(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+            case SHORT:
+                return NumberSyntax.isInteger(value, Short.MIN_VALUE, Short.MAX_VALUE);
+            case INT:
+                return NumberSyntax.isInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case LONG:
+                return NumberSyntax.isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            case FLOAT:
+                return NumberSyntax.isDecimal(value) && Float.isFinite(Float.parseFloat(value));
+            case DOUBLE:
+                return NumberSyntax.isDecimal(value) && Double.isFinite(Double.parseDouble(value));
+            case DECLARED:
+                Element element = types.asElement(type);
+                if (element.getKind() != ElementKind.ENUM || overridesToString((TypeElement) element)) return true;
+                String key = value.toLowerCase(Locale.ROOT);
+                for (Element constant : element.getEnclosedElements()) {
+                    if (constant.getKind() == ElementKind.ENUM_CONSTANT
+                            && constant.getSimpleName().toString().toLowerCase(Locale.ROOT).equals(key)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private TypeMirror unboxed(TypeMirror type) {
+        try {
+            return types.unboxedType(type);
+        } catch (IllegalArgumentException notAWrapper) {
+            return type;
+        }
+    }
+
+    /**
+     * Whether the enum's constants are named by something other than {@link Enum#toString()}'s constant name.
+     * Constant bodies are not visible here, so an override in one of those goes unnoticed.
+     */
+    private boolean overridesToString(TypeElement type) {
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals("toString")
+                    && ((ExecutableElement) member).getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String unsupported(TypeElement type, List<ExecutableElement> handlers) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) return "private class";
+            NestingKind nesting = ((TypeElement) element).getNestingKind();
+            if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) return "local class";
+            if (!((TypeElement) element).getTypeParameters().isEmpty()) return "generic class";
+        }
+
+        TypeMirror exception = elements.getTypeElement("java.lang.Exception").asType();
+        TypeMirror error = elements.getTypeElement("java.lang.Error").asType();
+        for (ExecutableElement method : handlers) {
+            if (method.getModifiers().contains(Modifier.PRIVATE)) return "private handler " + method.getSimpleName();
+            for (TypeMirror thrown : method.getThrownTypes()) {
+                if (!types.isAssignable(thrown, exception) && !types.isAssignable(thrown, error)) {
+                    return "handler " + method.getSimpleName() + " throws " + thrown;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void generate(TypeElement type, List<ExecutableElement> handlers) {
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + CommandRegistration.SUFFIX;
+        String handlerType = type.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements ").append(COMPONENTS).append("CommandRegistration<").append(handlerType).append("> {\n\n")
+                .append("    @Override\n")
+                .append("    public void register(").append(handlerType).append(" handler, ")
+                .append(COMPONENTS).append("CommandRegistration.Registrar registrar) {\n");
+
+        for (ExecutableElement method : handlers) {
+            CommandNode commandNode = method.getAnnotation(CommandNode.class);
+            if (commandNode != null) {
+                Permission permission = method.getAnnotation(Permission.class);
+                Completion completion = method.getAnnotation(Completion.class);
+                Cooldown cooldown = method.getAnnotation(Cooldown.class);
+                source.append("        registrar.command(")
+                        .append(literal(commandNode.value())).append(", ")
+                        .append(literal(commandNode.aliases())).append(", ")
+                        .append(permission != null ? literal(permission.value()) : "null").append(", ")
+                        .append(completion != null ? literal(completion.value()) : "null").append(", ")
+                        .append(method.getAnnotation(Async.class) != null).append(", ")
+                        .append(cooldown != null ? "new com.rainchat.rlib.commands.services.RateLimiter(" + cooldown.value() + "L, "
+                                + "java.util.concurrent.TimeUnit." + cooldown.unit().name() + ", " + cooldown.burst() + ")" : "null")
+                        .append(",\n                ")
+                        .append(slots(method)).append(",\n                ")
+                        .append(literal(binaryName + "#" + method.getSimpleName())).append(", ")
+                        .append(invoker(type, method)).append(");\n");
+            }
+
+            TabComplete tabComplete = method.getAnnotation(TabComplete.class);
+            if (tabComplete != null) {
+                source.append("        registrar.tabCompletion(")
+                        .append(literal(tabComplete.value())).append(", ")
+                        .append(tabComplete.threadSafe()).append(", ")
+                        .append(invoker(type, method)).append(");\n");
+            }
+        }
+        source.append("    }\n}\n");
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(type, "Could not write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private String slots(ExecutableElement method) {
+        StringBuilder slots = new StringBuilder("new " + COMPONENTS + "BindingPlan.Slot[]{");
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            if (i > 0) slots.append(", ");
+            slots.append(COMPONENTS).append("BindingPlan.Slot.");
+
+            String typeLiteral = types.erasure(parameter.asType()) + ".class";
+            Option option = parameter.getAnnotation(Option.class);
+            String tail = ", " + (option != null) + ", " + (option != null ? literal(option.value()) : "null") + ")";
+            switch (kind(parameter)) {
+                case SENDER:
+                    slots.append("sender(").append(typeLiteral).append(")");
+                    break;
+                case REST:
+                    slots.append("rest()");
+                    break;
+                case GREEDY:
+                    slots.append("greedy(").append(literal(parameter.getSimpleName().toString())).append(", ").append(typeLiteral).append(tail);
+                    break;
+                default:
+                    slots.append("argument(").append(literal(parameter.getSimpleName().toString())).append(", ").append(typeLiteral).append(tail);
+            }
+        }
+        return slots.append("}").toString();
+    }
+
+    private String invoker(TypeElement type, ExecutableElement method) {
+        StringBuilder call = new StringBuilder();
+        call.append(method.getModifiers().contains(Modifier.STATIC) ? type.getQualifiedName().toString() : "handler")
+                .append('.').append(method.getSimpleName()).append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) call.append(", ");
+            call.append('(').append(types.erasure(parameters.get(i).asType())).append(") args[").append(i).append(']');
+        }
+        call.append(')');
+
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return "args -> {\n                    " + call + ";\n                    return null;\n                }";
+        }
+        return "args -> " + call;
+    }
+
+    private int kind(VariableElement parameter) {
+        TypeMirror type = parameter.asType();
+        TypeElement sender = elements.getTypeElement("org.bukkit.command.CommandSender");
+        if (sender != null && types.isAssignable(types.erasure(type), sender.asType())) return SENDER;
+        if (type.getKind() == TypeKind.ARRAY && isString(((ArrayType) type).getComponentType())) return REST;
+        if (parameter.getAnnotation(Greedy.class) != null) return GREEDY;
+        return ARGUMENT;
+    }
+
+    private boolean isString(TypeMirror type) {
+        return types.isSameType(type, elements.getTypeElement("java.lang.String").asType());
+    }
+
+    private static String literal(String[] values) {
+        StringBuilder literal = new StringBuilder("new String[]{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) literal.append(", ");
+            literal.append(literal(values[i]));
+        }
+        return literal.append('}').toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+}
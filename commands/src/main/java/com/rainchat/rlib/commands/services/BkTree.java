@@ -0,0 +1,150 @@
+package com.rainchat.rlib.commands.services;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Burkhard-Keller tree over case-insensitive keys with Levenshtein distance, for "did you mean" lookups.
+ * A search for keys within distance {@code k} only descends into children whose edge distance lies within
+ * {@code k} of the query's distance to their parent, so small tolerances visit a fraction of the keys.
+ * <p>
+ * Trees are filled once and then only read; {@link #add} must not race with {@link #search}.
+ */
+public final class BkTree<V> {
+
+    private Entry<V> root;
+    private int size;
+
+    /**
+     * Adds {@code key}, ignoring case. A key that is already present keeps its first value.
+     */
+    public void add(String key, V value) {
+        Entry<V> entry = new Entry<>(key.toLowerCase(Locale.ROOT), value);
+        size++;
+        if (root == null) {
+            root = entry;
+            return;
+        }
+        Entry<V> node = root;
+        while (true) {
+            int distance = distance(node.key, entry.key);
+            if (distance == 0) {
+                size--;
+                return;
+            }
+            Entry<V> child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, entry);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * @param accept filter applied before the limit, e.g. a permission check
+     * @return values of keys within {@code maxDistance} of {@code query}, closest first, at most {@code limit}
+     */
+    public List<V> search(String query, int maxDistance, int limit, Predicate<? super V> accept) {
+        if (root == null || limit <= 0) return Collections.emptyList();
+        String key = query.toLowerCase(Locale.ROOT);
+
+        List<Match<V>> matches = new ArrayList<>();
+        Deque<Entry<V>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Entry<V> node = pending.pop();
+            int distance = distance(node.key, key);
+            if (distance <= maxDistance && accept.test(node.value)) {
+                matches.add(new Match<>(distance, node));
+            }
+            if (node.children == null) continue;
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int d = from; d <= to; d++) {
+                if (node.children[d] != null) pending.push(node.children[d]);
+            }
+        }
+
+        matches.sort(Comparator.<Match<V>>comparingInt(match -> match.distance).thenComparing(match -> match.entry.key));
+        List<V> values = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            values.add(matches.get(i).entry.value);
+        }
+        return values;
+    }
+
+    /**
+     * Suggestions within this distance read as typos rather than different words: one edit for short input,
+     * up to three for long names.
+     */
+    public static int tolerance(String input) {
+        int length = input.length();
+        return length <= 4 ? 1 : length <= 8 ? 2 : 3;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Entry<V> {
+        private final String key;
+        private final V value;
+        // Indexed by edit distance to this entry
+        private Entry<V>[] children;
+
+        private Entry(String key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Entry<V> child(int distance) {
+            return children != null && distance < children.length ? children[distance] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void setChild(int distance, Entry<V> child) {
+            if (children == null) {
+                children = new Entry[Math.max(distance + 1, 4)];
+            } else if (distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+
+    private static final class Match<V> {
+        private final int distance;
+        private final Entry<V> entry;
+
+        private Match(int distance, Entry<V> entry) {
+            this.distance = distance;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers each sender's last tab-completion result so the next keystroke can narrow it instead of
+ * recomputing it. A session only answers when the new input extends the remembered one: same command snapshot,
+ * same preceding arguments, and a current argument starting with the remembered prefix.
+ * <p>
+ * Sessions expire after a short idle time, and the least recently used ones are evicted beyond
+ * {@link #setMaxSessions(int)}. {@link TabCompleterService} clears them all whenever a player joins or quits
+ * or a world loads or unloads, since a remembered {@code @player} or {@code @world} result would hide the change.
+ */
+public final class CompletionSessions {
+
+    private final LinkedHashMap<Object, Session> sessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Session> eldest) {
+            return size() > maxSessions;
+        }
+    };
+    private volatile long idleNanos = TimeUnit.SECONDS.toNanos(5);
+    private volatile int maxSessions = 1024;
+
+    /**
+     * @param scope identity of the command snapshot the result was computed against
+     * @return the remembered suggestions matching the current argument, at most {@code limit}, or {@code null} on a miss
+     */
+    public List<String> narrow(CommandSender sender, Object scope, String command, String[] args, int limit) {
+        if (maxSessions <= 0 || args.length == 0) return null;
+        String current = args[args.length - 1];
+        long now = System.nanoTime();
+
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(key(sender));
+        }
+        if (session == null || !session.extendedBy(scope, command, args, now - idleNanos)) return null;
+
+        List<String> narrowed = new ArrayList<>();
+        for (String value : session.values) {
+            if (value.regionMatches(true, 0, current, 0, current.length())) {
+                narrowed.add(value);
+            }
+        }
+        remember(sender, new Session(scope, command, args.clone(), narrowed.toArray(new String[0]), now));
+        return narrowed.size() > limit ? new ArrayList<>(narrowed.subList(0, limit)) : narrowed;
+    }
+
+    /**
+     * Remembers {@code suggestions} for the sender's current input. Results cut off at {@code limit} are not
+     * remembered, since narrowing them could miss values.
+     */
+    public void remember(CommandSender sender, Object scope, String command, String[] args, List<String> suggestions, int limit) {
+        if (maxSessions <= 0 || args.length == 0 || suggestions.size() >= limit) return;
+        remember(sender, new Session(scope, command, args.clone(), suggestions.toArray(new String[0]), System.nanoTime()));
+    }
+
+    private void remember(CommandSender sender, Session session) {
+        synchronized (sessions) {
+            sessions.put(key(sender), session);
+            purgeIdle(session.touchedAt - idleNanos);
+        }
+    }
+
+    /**
+     * Drops idle sessions, oldest first; access order means the scan stops at the first live one.
+     */
+    private void purgeIdle(long cutoff) {
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().touchedAt - cutoff >= 0) break;
+            iterator.remove();
+        }
+    }
+
+    public void evict(CommandSender sender) {
+        synchronized (sessions) {
+            sessions.remove(key(sender));
+        }
+    }
+
+    public void clear() {
+        synchronized (sessions) {
+            sessions.clear();
+        }
+    }
+
+    public void setIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Caps the number of remembered senders; {@code 0} turns memoization off.
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+        synchronized (sessions) {
+            Iterator<Session> iterator = sessions.values().iterator();
+            while (sessions.size() > Math.max(maxSessions, 0) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Object key(CommandSender sender) {
+        return sender instanceof Player ? ((Player) sender).getUniqueId() : sender.getName();
+    }
+
+    private static final class Session {
+        private final Object scope;
+        private final String command;
+        private final String[] args;
+        private final String[] values;
+        private final long touchedAt;
+
+        private Session(Object scope, String command, String[] args, String[] values, long touchedAt) {
+            this.scope = scope;
+            this.command = command;
+            this.args = args;
+            this.values = values;
+            this.touchedAt = touchedAt;
+        }
+
+        boolean extendedBy(Object scope, String command, String[] args, long cutoff) {
+            if (this.scope != scope || touchedAt - cutoff < 0 || !this.command.equals(command) || this.args.length != args.length) {
+                return false;
+            }
+            int last = args.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (!this.args[i].equals(args[i])) return false;
+            }
+            String prefix = this.args[last];
+            return args[last].length() >= prefix.length() && args[last].regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+    }
+}
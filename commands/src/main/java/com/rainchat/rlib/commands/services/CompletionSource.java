@@ -0,0 +1,53 @@
+package com.rainchat.rlib.commands.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Something that can answer "which suggestions start with this prefix" without handing out its whole list.
+ * Sources over large or generated value sets should compute only the matching values, up to the limit,
+ * as {@link RangeSource} does, and never build the full list.
+ */
+@FunctionalInterface
+public interface CompletionSource {
+
+    /**
+     * Wraps a plain list. Filtering is a linear, allocation-free scan.
+     */
+    static CompletionSource of(List<String> values) {
+        return (prefix, limit) -> {
+            List<String> filtered = new ArrayList<>();
+            for (String value : values) {
+                if (filtered.size() >= limit) break;
+                if (value.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    filtered.add(value);
+                }
+            }
+            return filtered;
+        };
+    }
+
+    /**
+     * @param prefix typed argument, matched case-insensitively
+     * @param limit  maximum number of suggestions to return
+     */
+    List<String> suggest(String prefix, int limit);
+
+    /**
+     * Whether the suggestions for a longer prefix are always among those for a shorter one, so a
+     * {@link CompletionSessions} may narrow an earlier result instead of asking again.
+     * Sources that cap their own output must return {@code false}.
+     */
+    default boolean isNarrowable() {
+        return true;
+    }
+
+    /**
+     * Values close to a mistyped {@code input}, closest first, for "did you mean" messages. Sources that cannot
+     * answer without scanning every value return nothing.
+     */
+    default List<String> closest(String input, int limit) {
+        return Collections.emptyList();
+    }
+}
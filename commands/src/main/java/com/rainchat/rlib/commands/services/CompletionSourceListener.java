@@ -0,0 +1,41 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Keeps the {@code @player} and {@code @world} completion lists of a {@link TabCompleterService} up to date.
+ */
+public final class CompletionSourceListener implements Listener {
+
+    private final TabCompleterService tabCompleterService;
+
+    public CompletionSourceListener(TabCompleterService tabCompleterService) {
+        this.tabCompleterService = tabCompleterService;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        tabCompleterService.playerJoined(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        tabCompleterService.playerQuit(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        tabCompleterService.worldLoaded(event.getWorld().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        tabCompleterService.worldUnloaded(event.getWorld().getName());
+    }
+}
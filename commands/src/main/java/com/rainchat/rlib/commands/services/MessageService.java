@@ -2,22 +2,35 @@ package com.rainchat.rlib.commands.services;
 
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class MessageService {
 
-    private final Map<String, MessageResolver> messages = new HashMap<>();
+    private final Map<String, MessageResolver> messages = new ConcurrentHashMap<>();
+    private volatile Map<String, MessageResolver> loaded = Map.of();
 
     public MessageService() {
-        register("command.error.permission", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cOops! You don't have the required permissions to execute this command!")));
-        register("command.error.no-args", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cNot enough arguments provided! &7Please check the command usage and try again.")));
-        register("command.error.exists", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cThe command you're trying to use doesn't seem to exist!")));
-        register("command.error.no-message", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cAn error occurred while executing the command. &7Please contact the administrator!")));
-        register("command.error.wrong-usage", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cIncorrect command usage! &7Please review the syntax and try again.")));
-        register("command.error.console-only", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cThis command can only be executed from the console!")));
-        register("command.error.player-only", (sender, args) -> sender.sendMessage(color("&e⚠ &7| &cThis command can only be executed from the console!")));
+        register("command.error.permission", "&e⚠ &7| &cOops! You don't have the required permissions to execute this command!");
+        register("command.error.no-args", "&e⚠ &7| &cNot enough arguments provided! &7Please check the command usage and try again.");
+        register("command.error.exists", "&e⚠ &7| &cThe command you're trying to use doesn't seem to exist!");
+        register("command.error.did-you-mean", "&e⚠ &7| &cUnknown &7{arg0}&c. Did you mean &7{arg1}&c?");
+        register("command.error.no-message", "&e⚠ &7| &cAn error occurred while executing the command. &7Please contact the administrator!");
+        register("command.error.wrong-usage", "&e⚠ &7| &cIncorrect command usage! &7Please review the syntax and try again.");
+        register("command.error.console-only", "&e⚠ &7| &cThis command can only be executed from the console!");
+        register("command.error.cooldown", "&e⚠ &7| &cPlease wait &7{arg0}s &cbefore using this command again!");
+        register("command.error.player-only", "&e⚠ &7| &cThis command can only be executed from the console!");
+        // Parse failures receive the rejected input and the parameter name instead of the command arguments
+        register("command.error.invalid-number", "&e⚠ &7| &c{arg0} &cis not a valid number for &7{arg1}&c!");
+        register("command.error.invalid-boolean", "&e⚠ &7| &c{arg0} &cis not true or false for &7{arg1}&c!");
+        register("command.error.invalid-value", "&e⚠ &7| &c{arg0} &cis not a valid value for &7{arg1}&c!");
+        register("command.error.player-not-found", "&e⚠ &7| &cPlayer &7{arg0} &cis not online!");
+        register("command.error.offline-player-not-found", "&e⚠ &7| &cPlayer &7{arg0} &chas never joined this server!");
     }
 
     public static String color(final String message) {
@@ -28,10 +41,80 @@ public final class MessageService {
         messages.put(messageId, messageResolver);
     }
 
+    /**
+     * Registers a message text, compiled once into a {@link MessageTemplate}.
+     */
+    public void register(final String messageId, final String message) {
+        messages.put(messageId, MessageTemplate.compile(message));
+    }
+
+    /**
+     * Loads message texts from a YAML file, keyed by message id (nested sections join with dots).
+     * They take precedence over registered messages until the next reload; ids missing from the file fall back
+     * to the registered ones.
+     */
+    public void reload(final File file) {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        Map<String, MessageResolver> templates = new HashMap<>();
+        for (String key : config.getKeys(true)) {
+            if (config.isString(key)) {
+                templates.put(key, MessageTemplate.compile(config.getString(key)));
+            }
+        }
+        loaded = Map.copyOf(templates);
+    }
+
     public void sendMessage(final String messageId, final CommandSender sender, String[] args) {
-        MessageResolver messageResolver = messages.get(messageId);
+        sendMessage(messageId, sender, null, args);
+    }
+
+    /**
+     * @param command the label filling {@code {command}}, or {@code null}
+     */
+    public void sendMessage(final String messageId, final CommandSender sender, String command, String[] args) {
+        MessageResolver messageResolver = resolver(messageId);
+        if (messageResolver instanceof MessageTemplate) {
+            sender.sendMessage(((MessageTemplate) messageResolver).render(sender, command, args));
+        } else if (messageResolver != null) {
+            messageResolver.resolve(sender, args);
+        }
+    }
+
+    /**
+     * The text {@link #sendMessage(String, CommandSender, String, String[])} would send, for callers that collect
+     * messages instead of sending them one by one.
+     *
+     * @return the text, or {@code null} if the message is produced by a custom {@link MessageResolver}
+     */
+    public String render(final String messageId, final CommandSender sender, String command, String[] args) {
+        MessageResolver messageResolver = resolver(messageId);
+        return messageResolver instanceof MessageTemplate ? ((MessageTemplate) messageResolver).render(sender, command, args) : null;
+    }
+
+    /**
+     * Sends one message to many recipients. A template that does not mention {@code {sender}} is rendered once
+     * and the same text is sent to everyone.
+     */
+    public void broadcast(final String messageId, final Collection<? extends CommandSender> recipients, String command, String[] args) {
+        MessageResolver messageResolver = resolver(messageId);
+        if (messageResolver instanceof MessageTemplate && !((MessageTemplate) messageResolver).dependsOnSender()) {
+            String rendered = ((MessageTemplate) messageResolver).render(null, command, args);
+            for (CommandSender recipient : recipients) {
+                recipient.sendMessage(rendered);
+            }
+            return;
+        }
+        for (CommandSender recipient : recipients) {
+            sendMessage(messageId, recipient, command, args);
+        }
+    }
+
+    private MessageResolver resolver(String messageId) {
+        MessageResolver messageResolver = loaded.get(messageId);
+        if (messageResolver == null) messageResolver = messages.get(messageId);
+        if (messageResolver == null) messageResolver = loaded.get("command.error.no-message");
         if (messageResolver == null) messageResolver = messages.get("command.error.no-message");
-        if (messageResolver != null) messageResolver.resolve(sender, args);
+        return messageResolver;
     }
 
     public interface MessageResolver {
@@ -0,0 +1,109 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message compiled once: color codes are translated up front and the text is split around its placeholders,
+ * so sending it only appends the pieces into a reused builder.
+ * <p>
+ * Placeholders are {@code {arg0}}, {@code {arg1}}, ... for the message arguments, {@code {command}} for the command
+ * label and {@code {sender}} for the recipient's name. Substituted values are inserted as is, so input cannot
+ * smuggle in color codes. Unknown placeholders are kept literally.
+ */
+public final class MessageTemplate implements MessageService.MessageResolver {
+
+    private static final int COMMAND = -1;
+    private static final int SENDER = -2;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String source;
+    private final String[] literals;
+    private final int[] slots;
+
+    private MessageTemplate(String source, String[] literals, int[] slots) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    public static MessageTemplate compile(String message) {
+        String colored = MessageService.color(message);
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        for (int open = colored.indexOf('{'); open >= 0; open = colored.indexOf('{', open + 1)) {
+            int close = colored.indexOf('}', open + 1);
+            if (close < 0) break;
+            int slot = slot(colored.substring(open + 1, close));
+            if (slot == Integer.MIN_VALUE) continue;
+
+            literals.add(colored.substring(literalStart, open));
+            slots.add(slot);
+            literalStart = close + 1;
+            open = close;
+        }
+        literals.add(colored.substring(literalStart));
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new MessageTemplate(message, literals.toArray(new String[0]), slotArray);
+    }
+
+    private static int slot(String name) {
+        if (name.equals("command")) return COMMAND;
+        if (name.equals("sender")) return SENDER;
+        if (name.startsWith("arg") && NumberSyntax.isInteger(name.substring(3), 0, 99) && Character.isDigit(name.charAt(3))) {
+            return Integer.parseInt(name.substring(3));
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param command the command label, or {@code null}
+     * @param args    the message arguments, or {@code null}
+     */
+    public String render(CommandSender sender, String command, String[] args) {
+        if (slots.length == 0) return literals[0];
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            int slot = slots[i];
+            if (slot == COMMAND) {
+                if (command != null) builder.append(command);
+            } else if (slot == SENDER) {
+                if (sender != null) builder.append(sender.getName());
+            } else if (args != null && slot < args.length) {
+                builder.append(args[slot]);
+            }
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    /**
+     * Whether the rendered text differs between recipients, i.e. the template uses {@code {sender}}.
+     */
+    public boolean dependsOnSender() {
+        for (int slot : slots) {
+            if (slot == SENDER) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void resolve(CommandSender sender, String[] args) {
+        sender.sendMessage(render(sender, null, args));
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
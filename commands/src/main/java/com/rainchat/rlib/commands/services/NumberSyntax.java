@@ -0,0 +1,95 @@
+package com.rainchat.rlib.commands.services;
+
+/**
+ * The number grammar of the built-in parsers: plain ASCII integers and decimals, without the hexadecimal,
+ * {@code NaN}, {@code Infinity} and type-suffixed forms the JDK accepts. Also used by the annotation processor to
+ * check {@code @Option} defaults, so it must not depend on the server API.
+ */
+public final class NumberSyntax {
+
+    // Scanned digits are accumulated as a negative number, so no valid scan is positive
+    static final long INVALID = 1;
+
+    /**
+     * Whether {@code string} is an optionally signed run of ASCII digits whose value lies in {@code [min, max]}.
+     */
+    public static boolean isInteger(String string, long min, long max) {
+        return scan(string, min, max) != INVALID;
+    }
+
+    /**
+     * Checks {@code string} like {@link #isInteger} and keeps the digits it read, so the value is not parsed twice.
+     * Accumulates negatively like {@link Long#parseLong(String)}, so overflow is detected without a wider type.
+     *
+     * @return the magnitude negated, which is never positive, or {@link #INVALID}; see {@link #value}
+     */
+    static long scan(String string, long min, long max) {
+        int length = string.length();
+        if (length == 0) return INVALID;
+
+        int i = 0;
+        boolean negative = false;
+        char first = string.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) return INVALID;
+            negative = first == '-';
+            i = 1;
+        }
+
+        // Bounds on the far side of zero do not apply to the digits, only to the value checked at the end
+        long limit = negative ? Math.min(min, 0) : -Math.max(max, 0);
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = string.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) return INVALID;
+            result *= 10;
+            if (result < limit + digit) return INVALID;
+            result -= digit;
+        }
+        long value = negative ? result : -result;
+        return value >= min && value <= max ? result : INVALID;
+    }
+
+    /**
+     * @param scanned what {@link #scan} returned for {@code string}
+     */
+    static long value(String string, long scanned) {
+        return string.charAt(0) == '-' ? scanned : -scanned;
+    }
+
+    /**
+     * Whether {@code string} is a plain decimal such as {@code -12}, {@code 3.5}, {@code .5} or {@code 1e-3}.
+     * Rejects the hexadecimal, {@code NaN}, {@code Infinity} and type-suffixed forms {@link Double#parseDouble} accepts.
+     * This is only a syntax check: an out-of-range value such as {@code 1e999} passes and parses to infinity,
+     * so callers must still check the parsed value with {@link Double#isFinite}.
+     */
+    public static boolean isDecimal(String string) {
+        int length = string.length();
+        int i = 0;
+        if (i < length && (string.charAt(i) == '-' || string.charAt(i) == '+')) i++;
+
+        int digits = 0;
+        for (; i < length && isDigit(string.charAt(i)); i++) digits++;
+        if (i < length && string.charAt(i) == '.') {
+            for (i++; i < length && isDigit(string.charAt(i)); i++) digits++;
+        }
+        if (digits == 0) return false;
+
+        if (i < length && (string.charAt(i) == 'e' || string.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (string.charAt(i) == '-' || string.charAt(i) == '+')) i++;
+            int exponentDigits = 0;
+            for (; i < length && isDigit(string.charAt(i)); i++) exponentDigits++;
+            if (exponentDigits == 0) return false;
+        }
+        return i == length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private NumberSyntax() {
+    }
+}
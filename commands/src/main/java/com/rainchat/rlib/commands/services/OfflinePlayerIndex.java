@@ -0,0 +1,502 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.OfflinePlayer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Name to UUID index of every player that has joined, kept in one file so completion and lookup never touch the
+ * playerdata directory. The file starts with a section sorted by lowercase name, which is memory-mapped and
+ * binary-searched in place, so opening it reads nothing but the header. Players seen since the last
+ * {@link #compact()} are appended to the file and also kept in memory.
+ * <p>
+ * The data lives in generations named after the index path, e.g. {@code offline-players.idx.3}. Compaction
+ * writes the next generation and switches to it, so a file is never replaced while it is mapped, which Windows
+ * does not allow. Older generations are deleted once they are no longer mapped, at the latest on the next open.
+ * <p>
+ * Records are 32 bytes: the UUID and the name as at most 16 ASCII bytes. Names that do not fit, which vanilla
+ * never hands out, are not indexed. Lookups are safe from any thread; writes are serialized.
+ */
+public final class OfflinePlayerIndex implements CompletionSource, Closeable {
+
+    private static final int MAGIC = 0x524C4F50; // "RLOP"
+    private static final int VERSION = 1;
+    // Magic, version, number of sorted records, reserved
+    private static final int HEADER = 16;
+    private static final int RECORD = 32;
+    private static final int NAME_BYTES = 16;
+    public static final int DEFAULT_MAX_RESULTS = 100;
+
+    private final Path file;
+    private long generation; // guarded by this
+    private FileChannel channel; // guarded by this
+    private long appendPosition; // guarded by this
+    private volatile Sorted sorted;
+    private final ConcurrentSkipListMap<String, Entry> appended = new ConcurrentSkipListMap<>();
+    // Lowercase name each appended UUID goes by now; sorted records of the same UUID under another name are stale
+    private final Map<UUID, String> currentNames = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    private volatile int maxResults = DEFAULT_MAX_RESULTS;
+
+    private OfflinePlayerIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the latest generation of the index at {@code file}, creating an empty one if there is none.
+     *
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public static OfflinePlayerIndex open(Path file) throws IOException {
+        OfflinePlayerIndex index = new OfflinePlayerIndex(file);
+        synchronized (index) {
+            index.load();
+        }
+        return index;
+    }
+
+    private void load() throws IOException {
+        generation = Math.max(1, latestGeneration());
+        Path current = generation(generation);
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER) {
+            writeHeader(channel, 0);
+            sorted = Sorted.EMPTY;
+            appendPosition = HEADER;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(current + " is not an offline player index");
+        }
+        int count = header.getInt(8);
+        long sortedEnd = HEADER + (long) count * RECORD;
+        if (count < 0 || sortedEnd > size) throw new IOException(current + " is truncated");
+        sorted = count == 0 ? Sorted.EMPTY : new Sorted(channel.map(FileChannel.MapMode.READ_ONLY, HEADER, (long) count * RECORD), count);
+
+        // A record cut short by a crash is dropped
+        long appendedEnd = sortedEnd + (size - sortedEnd) / RECORD * RECORD;
+        if (appendedEnd < size) channel.truncate(appendedEnd);
+        ByteBuffer records = ByteBuffer.allocate((int) (appendedEnd - sortedEnd));
+        channel.read(records, sortedEnd);
+        for (int offset = 0; offset < records.capacity(); offset += RECORD) {
+            remember(readEntry(records, offset));
+        }
+        appendPosition = appendedEnd;
+    }
+
+    /**
+     * Finds the newest complete generation and deletes the others, including a compaction cut short.
+     *
+     * @return the generation number, or {@code 0} if there is none
+     */
+    private long latestGeneration() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        List<Path> stale = new ArrayList<>();
+        long latest = 0;
+        Path latestPath = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path candidate : files) {
+                String suffix = candidate.getFileName().toString().substring(prefix.length());
+                long number = NumberSyntax.isInteger(suffix, 1, Long.MAX_VALUE) ? Long.parseLong(suffix) : 0;
+                if (number > latest) {
+                    if (latestPath != null) stale.add(latestPath);
+                    latest = number;
+                    latestPath = candidate;
+                } else {
+                    stale.add(candidate);
+                }
+            }
+        }
+        for (Path path : stale) {
+            Files.deleteIfExists(path);
+        }
+        return latest;
+    }
+
+    private Path generation(long number) {
+        return file.resolveSibling(file.getFileName() + "." + number);
+    }
+
+    /**
+     * @return the UUID last seen with {@code name}, ignoring case, or {@code null}
+     */
+    public UUID find(String name) {
+        String key = key(name);
+        Entry entry = appended.get(key);
+        if (entry != null) return entry.uuid;
+
+        Sorted sorted = this.sorted;
+        byte[] target = ascii(key);
+        if (target == null) return null;
+        int index = sorted.lowerBound(target);
+        for (; index < sorted.count && sorted.compare(index, target, false) == 0; index++) {
+            Entry candidate = sorted.entry(index);
+            if (!isStale(candidate)) return candidate.uuid;
+        }
+        return null;
+    }
+
+    /**
+     * Names starting with {@code prefix}, ignoring case, in alphabetical order, at most {@link #setMaxResults(int)}.
+     */
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        String key = key(prefix);
+        byte[] target = ascii(key);
+        limit = Math.min(limit, maxResults);
+        if (target == null || limit <= 0) return Collections.emptyList();
+
+        Iterator<Entry> fromAppended = (key.isEmpty() ? appended : appended.subMap(key, true, key + Character.MAX_VALUE, false)).values().iterator();
+        Sorted sorted = this.sorted;
+        int index = sorted.lowerBound(target);
+        Entry nextAppended = fromAppended.hasNext() ? fromAppended.next() : null;
+        Entry nextSorted = nextSorted(sorted, index, target);
+
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        String last = null;
+        while (names.size() < limit && (nextAppended != null || nextSorted != null)) {
+            Entry entry;
+            if (nextSorted == null || nextAppended != null && nextAppended.key.compareTo(nextSorted.key) <= 0) {
+                entry = nextAppended;
+                nextAppended = fromAppended.hasNext() ? fromAppended.next() : null;
+            } else {
+                entry = nextSorted;
+                index = nextSorted.index + 1;
+                nextSorted = nextSorted(sorted, index, target);
+            }
+            if (entry.key.equals(last)) continue;
+            last = entry.key;
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    /**
+     * Results are capped, so a longer prefix may match names a shorter one left out.
+     */
+    @Override
+    public boolean isNarrowable() {
+        return false;
+    }
+
+    /**
+     * Caps the suggestions for one tab press, {@value #DEFAULT_MAX_RESULTS} by default. Without a cap an empty
+     * argument would list every player that ever joined.
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * The next live sorted record from {@code index} on that starts with {@code prefix}, or {@code null}.
+     */
+    private Entry nextSorted(Sorted sorted, int index, byte[] prefix) {
+        for (; index < sorted.count && sorted.compare(index, prefix, true) == 0; index++) {
+            Entry entry = sorted.entry(index);
+            if (!isStale(entry) && !appended.containsKey(entry.key)) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Records that {@code name} belongs to {@code uuid}, appending to the file unless the index already knows it.
+     *
+     * @return whether the index changed
+     */
+    public boolean add(String name, UUID uuid) throws IOException {
+        if (name == null || uuid == null || ascii(name) == null) return false;
+        if (uuid.equals(find(name))) return false;
+        synchronized (this) {
+            if (closed) return false;
+            Entry entry = new Entry(name, uuid, -1);
+            ByteBuffer record = ByteBuffer.allocate(RECORD);
+            writeEntry(record, entry);
+            record.flip();
+            appendPosition += writeFully(channel, record, appendPosition);
+            remember(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Adds players in bulk, e.g. everyone in {@code Bukkit.getOfflinePlayers()} when the index is first created.
+     *
+     * @return how many players were new to the index
+     */
+    public synchronized int addAll(Collection<? extends OfflinePlayer> players) throws IOException {
+        if (closed) return 0;
+        ByteBuffer records = ByteBuffer.allocate(Math.max(players.size(), 1) * RECORD);
+        List<Entry> added = new ArrayList<>();
+        for (OfflinePlayer player : players) {
+            String name = player.getName();
+            UUID uuid = player.getUniqueId();
+            if (name == null || uuid == null || ascii(name) == null || uuid.equals(find(name))) continue;
+            Entry entry = new Entry(name, uuid, -1);
+            writeEntry(records, entry);
+            added.add(entry);
+        }
+        records.flip();
+        appendPosition += writeFully(channel, records, appendPosition);
+        for (Entry entry : added) {
+            remember(entry);
+        }
+        return added.size();
+    }
+
+    /**
+     * Writes every live record sorted into the next generation and switches to it, emptying the in-memory part.
+     * The new generation only appears once it is complete, so a failed compaction leaves the index as it was.
+     */
+    public synchronized void compact() throws IOException {
+        if (closed || appended.isEmpty()) return;
+        Sorted old = sorted;
+        Path next = generation(generation + 1);
+        Path temporary = next.resolveSibling(next.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD * 1024);
+            long position = HEADER;
+            Iterator<Entry> fromAppended = appended.values().iterator();
+            Entry nextAppended = fromAppended.hasNext() ? fromAppended.next() : null;
+            int index = 0;
+            String last = null;
+            while (nextAppended != null || index < old.count) {
+                Entry entry;
+                if (index >= old.count) {
+                    entry = nextAppended;
+                    nextAppended = fromAppended.hasNext() ? fromAppended.next() : null;
+                } else {
+                    Entry candidate = old.entry(index);
+                    if (nextAppended != null && nextAppended.key.compareTo(candidate.key) <= 0) {
+                        entry = nextAppended;
+                        nextAppended = fromAppended.hasNext() ? fromAppended.next() : null;
+                    } else {
+                        index++;
+                        if (isStale(candidate)) continue;
+                        entry = candidate;
+                    }
+                }
+                if (entry.key.equals(last)) continue;
+                last = entry.key;
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    position += writeFully(out, buffer, position);
+                    buffer.clear();
+                }
+                writeEntry(buffer, entry);
+                count++;
+            }
+            buffer.flip();
+            writeFully(out, buffer, position);
+            writeHeader(out, count);
+            out.force(true);
+        }
+
+        FileChannel nextChannel;
+        try {
+            Files.move(temporary, next, StandardCopyOption.ATOMIC_MOVE);
+            nextChannel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            Files.deleteIfExists(next);
+            throw e;
+        }
+        Sorted nextSorted = count == 0 ? Sorted.EMPTY : new Sorted(nextChannel.map(FileChannel.MapMode.READ_ONLY, HEADER, (long) count * RECORD), count);
+
+        Path previous = generation(generation);
+        channel.close();
+        channel = nextChannel;
+        generation++;
+        appendPosition = HEADER + (long) count * RECORD;
+        // Publish the new sorted section before dropping the appended entries, so readers never miss a name
+        sorted = nextSorted;
+        appended.clear();
+        currentNames.clear();
+        try {
+            Files.deleteIfExists(previous);
+        } catch (IOException e) {
+            // Still mapped (Windows); the next open removes it
+        }
+    }
+
+    /**
+     * Compacts and closes the file. Lookups keep working on what was loaded; later additions are ignored.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        try {
+            compact();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the number of records, counting names superseded by a rename until the next {@link #compact()}
+     */
+    public int size() {
+        return sorted.count + appended.size();
+    }
+
+    public boolean isEmpty() {
+        return sorted.count == 0 && appended.isEmpty();
+    }
+
+    private void remember(Entry entry) {
+        String previous = currentNames.put(entry.uuid, entry.key);
+        if (previous != null && !previous.equals(entry.key)) {
+            Entry renamed = appended.get(previous);
+            if (renamed != null && renamed.uuid.equals(entry.uuid)) appended.remove(previous, renamed);
+        }
+        appended.put(entry.key, entry);
+    }
+
+    private boolean isStale(Entry sortedEntry) {
+        String current = currentNames.get(sortedEntry.uuid);
+        return current != null && !current.equals(sortedEntry.key);
+    }
+
+    private static void writeHeader(FileChannel channel, int count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).flip();
+        writeFully(channel, header, 0);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static void writeEntry(ByteBuffer buffer, Entry entry) {
+        buffer.putLong(entry.uuid.getMostSignificantBits());
+        buffer.putLong(entry.uuid.getLeastSignificantBits());
+        byte[] name = entry.name.getBytes(StandardCharsets.US_ASCII);
+        buffer.put(name);
+        for (int i = name.length; i < NAME_BYTES; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, int offset) {
+        return readEntry(buffer, offset, -1);
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, int offset, int index) {
+        UUID uuid = new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+        int length = 0;
+        while (length < NAME_BYTES && buffer.get(offset + 16 + length) != 0) length++;
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = buffer.get(offset + 16 + i);
+        }
+        return new Entry(new String(name, StandardCharsets.US_ASCII), uuid, index);
+    }
+
+    /**
+     * @return the lowercase name as bytes, or {@code null} if it cannot be a stored name
+     */
+    private static byte[] ascii(String name) {
+        if (name.length() > NAME_BYTES) return null;
+        byte[] bytes = new byte[name.length()];
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c > '~') return null;
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final String key;
+        private final UUID uuid;
+        // Position in the sorted section, or -1 for appended entries
+        private final int index;
+
+        private Entry(String name, UUID uuid, int index) {
+            this.name = name;
+            this.key = key(name);
+            this.uuid = uuid;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The memory-mapped sorted section. Only absolute reads are used, so one buffer serves every thread.
+     */
+    private static final class Sorted {
+        static final Sorted EMPTY = new Sorted(null, 0);
+
+        private final MappedByteBuffer buffer;
+        private final int count;
+
+        private Sorted(MappedByteBuffer buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        Entry entry(int index) {
+            return readEntry(buffer, index * RECORD, index);
+        }
+
+        /**
+         * @return the first record whose lowercase name is not less than {@code target}
+         */
+        int lowerBound(byte[] target) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, target, false) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Compares the record's lowercase name with {@code target}, or only its first {@code target.length}
+         * characters if {@code prefix} is set.
+         */
+        int compare(int index, byte[] target, boolean prefix) {
+            int offset = index * RECORD + 16;
+            for (int i = 0; i < NAME_BYTES; i++) {
+                int stored = buffer.get(offset + i);
+                if (i == target.length) return prefix || stored == 0 ? 0 : 1;
+                if (stored == 0) return -1;
+                int difference = Character.toLowerCase(stored) - target[i];
+                if (difference != 0) return difference;
+            }
+            return 0;
+        }
+    }
+}
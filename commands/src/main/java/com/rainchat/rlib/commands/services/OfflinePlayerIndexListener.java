@@ -0,0 +1,55 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Adds joining players to an {@link OfflinePlayerIndex} and compacts it when the owning plugin is disabled.
+ * A player already indexed under the same name costs one lookup; anyone else is appended on an async thread.
+ */
+public final class OfflinePlayerIndexListener implements Listener {
+
+    private final Plugin plugin;
+    private final OfflinePlayerIndex index;
+
+    public OfflinePlayerIndexListener(Plugin plugin, OfflinePlayerIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        String name = player.getName();
+        UUID uuid = player.getUniqueId();
+        if (uuid.equals(index.find(name))) return;
+        // The append is a file write; keep it off the main thread
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                index.add(name, uuid);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not add " + name + " to the offline player index", e);
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisable(PluginDisableEvent event) {
+        if (event.getPlugin() != plugin) return;
+        try {
+            index.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not compact the offline player index", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.rainchat.rlib.commands.services;
+
+/**
+ * Outcome of parsing one argument: either a value or the id of the message explaining why the input was rejected.
+ * Failures carry no stack trace, so rejecting bad input costs no more than accepting it.
+ */
+public final class ParseResult {
+
+    public static final ParseResult INVALID_VALUE = failure("command.error.invalid-value");
+    public static final ParseResult INVALID_NUMBER = failure("command.error.invalid-number");
+    public static final ParseResult INVALID_BOOLEAN = failure("command.error.invalid-boolean");
+    public static final ParseResult PLAYER_NOT_FOUND = failure("command.error.player-not-found");
+    public static final ParseResult OFFLINE_PLAYER_NOT_FOUND = failure("command.error.offline-player-not-found");
+
+    private final Object value;
+    private final String error;
+
+    private ParseResult(Object value, String error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static ParseResult success(Object value) {
+        return new ParseResult(value, null);
+    }
+
+    /**
+     * @param messageId the {@link MessageService} key to send; it receives the rejected input and the parameter name as arguments
+     */
+    public static ParseResult failure(String messageId) {
+        return new ParseResult(null, messageId);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,95 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Online players keyed by lowercase name, kept up to date from join and quit events by {@link CompletionSourceListener}.
+ * Exact and prefix lookups are logarithmic and safe to call off the main thread.
+ */
+public final class PlayerIndex {
+
+    private final ConcurrentSkipListMap<String, Player> players = new ConcurrentSkipListMap<>();
+
+    /**
+     * Replaces the contents with the players currently online.
+     */
+    public void reset() {
+        players.clear();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            add(player);
+        }
+    }
+
+    public void add(Player player) {
+        players.put(key(player.getName()), player);
+    }
+
+    public void remove(Player player) {
+        players.remove(key(player.getName()), player);
+    }
+
+    public Player getExact(String name) {
+        return players.get(key(name));
+    }
+
+    /**
+     * Resolves a name like {@link Bukkit#getPlayer(String)}: an exact match, otherwise the player with the
+     * shortest name starting with {@code name}.
+     */
+    public Player find(String name) {
+        String key = key(name);
+        Player found = players.get(key);
+        if (found != null) return found;
+
+        int shortest = Integer.MAX_VALUE;
+        for (Player player : withPrefix(key).values()) {
+            int length = player.getName().length();
+            if (length < shortest) {
+                found = player;
+                shortest = length;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Names starting with {@code prefix}, ignoring case, in alphabetical order. When the viewer is a player,
+     * players it cannot see are left out.
+     */
+    public List<String> suggest(CommandSender viewer, String prefix, int limit) {
+        Player viewingPlayer = viewer instanceof Player ? (Player) viewer : null;
+        List<String> names = new ArrayList<>();
+        for (Player player : withPrefix(key(prefix)).values()) {
+            if (names.size() >= limit) break;
+            if (viewingPlayer == null || viewingPlayer.canSee(player)) {
+                names.add(player.getName());
+            }
+        }
+        return names;
+    }
+
+    public CompletionSource visibleTo(CommandSender viewer) {
+        return (prefix, limit) -> suggest(viewer, prefix, limit);
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    private NavigableMap<String, Player> withPrefix(String key) {
+        if (key.isEmpty()) return players;
+        return players.subMap(key, true, key + Character.MAX_VALUE, false);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,120 @@
+package com.rainchat.rlib.commands.services;
+
+/**
+ * Built-in parsers for primitive types. Input is read with {@link NumberSyntax}, so invalid arguments are rejected
+ * without throwing.
+ */
+final class PrimitiveParsers {
+
+    static final TypeParserService.IntParser INT = new TypeParserService.IntParser() {
+        @Override
+        public int parseInt(String string) {
+            long scanned = NumberSyntax.scan(string, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) throw new NumberFormatException(string);
+            return (int) NumberSyntax.value(string, scanned);
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            long scanned = NumberSyntax.scan(string, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) return ParseResult.INVALID_NUMBER;
+            return ParseResult.success((int) NumberSyntax.value(string, scanned));
+        }
+    };
+
+    static final TypeParserService.LongParser LONG = new TypeParserService.LongParser() {
+        @Override
+        public long parseLong(String string) {
+            long scanned = NumberSyntax.scan(string, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) throw new NumberFormatException(string);
+            return NumberSyntax.value(string, scanned);
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            long scanned = NumberSyntax.scan(string, Long.MIN_VALUE, Long.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) return ParseResult.INVALID_NUMBER;
+            return ParseResult.success(NumberSyntax.value(string, scanned));
+        }
+    };
+
+    static final TypeParserService.DoubleParser DOUBLE = new TypeParserService.DoubleParser() {
+        @Override
+        public double parseDouble(String string) {
+            if (!NumberSyntax.isDecimal(string)) throw new NumberFormatException(string);
+            double value = Double.parseDouble(string);
+            if (!Double.isFinite(value)) throw new NumberFormatException(string);
+            return value;
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            if (!NumberSyntax.isDecimal(string)) return ParseResult.INVALID_NUMBER;
+            double value = Double.parseDouble(string);
+            return Double.isFinite(value) ? ParseResult.success(value) : ParseResult.INVALID_NUMBER;
+        }
+    };
+
+    static final TypeParserService.BooleanParser BOOLEAN = new TypeParserService.BooleanParser() {
+        @Override
+        public boolean parseBoolean(String string) {
+            if ("true".equalsIgnoreCase(string)) return true;
+            if ("false".equalsIgnoreCase(string)) return false;
+            throw new IllegalArgumentException(string + " is not a boolean.");
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            if ("true".equalsIgnoreCase(string)) return ParseResult.success(Boolean.TRUE);
+            if ("false".equalsIgnoreCase(string)) return ParseResult.success(Boolean.FALSE);
+            return ParseResult.INVALID_BOOLEAN;
+        }
+    };
+
+    static final TypeParserService.Parser BYTE = new TypeParserService.Parser() {
+        @Override
+        public Object parseObject(String string) {
+            return Byte.parseByte(string);
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            long scanned = NumberSyntax.scan(string, Byte.MIN_VALUE, Byte.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) return ParseResult.INVALID_NUMBER;
+            return ParseResult.success((byte) NumberSyntax.value(string, scanned));
+        }
+    };
+
+    static final TypeParserService.Parser SHORT = new TypeParserService.Parser() {
+        @Override
+        public Object parseObject(String string) {
+            return Short.parseShort(string);
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            long scanned = NumberSyntax.scan(string, Short.MIN_VALUE, Short.MAX_VALUE);
+            if (scanned == NumberSyntax.INVALID) return ParseResult.INVALID_NUMBER;
+            return ParseResult.success((short) NumberSyntax.value(string, scanned));
+        }
+    };
+
+    static final TypeParserService.Parser FLOAT = new TypeParserService.Parser() {
+        @Override
+        public Object parseObject(String string) {
+            float value = Float.parseFloat(string);
+            if (!Float.isFinite(value)) throw new NumberFormatException(string);
+            return value;
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            if (!NumberSyntax.isDecimal(string)) return ParseResult.INVALID_NUMBER;
+            float value = Float.parseFloat(string);
+            return Float.isFinite(value) ? ParseResult.success(value) : ParseResult.INVALID_NUMBER;
+        }
+    };
+
+    private PrimitiveParsers() {
+    }
+}
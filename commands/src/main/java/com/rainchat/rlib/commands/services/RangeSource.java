@@ -0,0 +1,144 @@
+package com.rainchat.rlib.commands.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The integers {@code min, min + step, ...} up to {@code max}, generated on demand. Only numbers whose decimal form
+ * starts with the typed prefix are computed, so a range of any size costs no more than the suggestions it returns.
+ * <p>
+ * Backs {@code @range:min-max[:step[:maxResults]]}, e.g. {@code @range:0-1000000:5:20}.
+ */
+public final class RangeSource implements CompletionSource {
+
+    public static final int DEFAULT_MAX_RESULTS = 100;
+    private static final String LONG_MIN = Long.toString(Long.MIN_VALUE);
+
+    private final long min;
+    private final long max;
+    private final long step;
+    private final int maxResults;
+
+    public RangeSource(long min, long max, long step, int maxResults) {
+        if (step <= 0) throw new IllegalArgumentException("step must be positive");
+        this.min = min;
+        this.max = max;
+        this.step = step;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Parses the part after {@code @range:}.
+     *
+     * @return the range, or an empty source if the specification is malformed
+     */
+    public static CompletionSource parse(String specification) {
+        if (specification == null) return SuggestionIndex.empty();
+        String[] parts = specification.split(":");
+        int separator = parts[0].indexOf('-', 1);
+        if (separator < 0 || parts.length > 3) return SuggestionIndex.empty();
+
+        String min = parts[0].substring(0, separator);
+        String max = parts[0].substring(separator + 1);
+        String step = parts.length > 1 ? parts[1] : "1";
+        String maxResults = parts.length > 2 ? parts[2] : String.valueOf(DEFAULT_MAX_RESULTS);
+        if (!NumberSyntax.isInteger(min, Long.MIN_VALUE, Long.MAX_VALUE)
+                || !NumberSyntax.isInteger(max, Long.MIN_VALUE, Long.MAX_VALUE)
+                || !NumberSyntax.isInteger(step, 1, Long.MAX_VALUE)
+                || !NumberSyntax.isInteger(maxResults, 0, Integer.MAX_VALUE)) {
+            return SuggestionIndex.empty();
+        }
+        return new RangeSource(Long.parseLong(min), Long.parseLong(max), Long.parseLong(step), Integer.parseInt(maxResults));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        int count = Math.min(limit, maxResults);
+        if (count <= 0 || min > max) return Collections.emptyList();
+
+        List<String> suggestions = new ArrayList<>(Math.min(count, 16));
+        if (prefix.isEmpty() || prefix.equals("-")) {
+            long end = prefix.isEmpty() ? max : Math.min(max, -1);
+            for (long value = min; value <= end && suggestions.size() < count; value += step) {
+                suggestions.add(Long.toString(value));
+                if (value > Long.MAX_VALUE - step) break;
+            }
+            return suggestions;
+        }
+
+        boolean negative = prefix.charAt(0) == '-';
+        String digits = negative ? prefix.substring(1) : prefix;
+        if (!NumberSyntax.isInteger(digits, 0, Long.MAX_VALUE) || digits.charAt(0) == '+') {
+            if (negative && prefix.equals(LONG_MIN) && contains(Long.MIN_VALUE)) suggestions.add(prefix);
+            return suggestions;
+        }
+
+        long typed = Long.parseLong(digits);
+        if (digits.charAt(0) == '0') {
+            // No other number starts with a zero digit
+            if (!negative && digits.length() == 1 && contains(0)) suggestions.add("0");
+            return suggestions;
+        }
+
+        // Magnitudes starting with the typed digits form the blocks [typed * 10^k, typed * 10^k + 10^k - 1]
+        long lowestMagnitude = negative ? (max < 0 ? -max : 1) : Math.max(min, 0);
+        // Long.MIN_VALUE has no positive magnitude; it is the largest one and comes last
+        long highestMagnitude = negative ? (min < 0 ? -Math.max(min, -Long.MAX_VALUE) : 0) : max;
+        for (long low = typed, width = 1; low <= highestMagnitude && suggestions.size() < count; ) {
+            long high = low > Long.MAX_VALUE - (width - 1) ? Long.MAX_VALUE : low + width - 1;
+            if (high >= lowestMagnitude) {
+                collect(suggestions, count, negative, Math.max(low, lowestMagnitude), Math.min(high, highestMagnitude));
+            }
+            if (low > Long.MAX_VALUE / 10) break;
+            low *= 10;
+            width *= 10;
+        }
+        if (negative && suggestions.size() < count && LONG_MIN.startsWith(prefix) && contains(Long.MIN_VALUE)) {
+            suggestions.add(LONG_MIN);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Output is capped at {@code maxResults}, so an earlier result may be missing numbers a longer prefix matches.
+     */
+    @Override
+    public boolean isNarrowable() {
+        return false;
+    }
+
+    private void collect(List<String> suggestions, int count, boolean negative, long lowMagnitude, long highMagnitude) {
+        if (negative) {
+            // Values run from -lowMagnitude down to -highMagnitude
+            long value = -lowMagnitude;
+            value -= offset(value);
+            for (; value >= -highMagnitude && suggestions.size() < count; value -= step) {
+                suggestions.add(Long.toString(value));
+                if (value < Long.MIN_VALUE + step) break;
+            }
+        } else {
+            long value = lowMagnitude;
+            long offset = offset(value);
+            if (offset != 0) {
+                if (value > Long.MAX_VALUE - (step - offset)) return;
+                value += step - offset;
+            }
+            for (; value <= highMagnitude && suggestions.size() < count; value += step) {
+                suggestions.add(Long.toString(value));
+                if (value > Long.MAX_VALUE - step) break;
+            }
+        }
+    }
+
+    private boolean contains(long value) {
+        return value >= min && value <= max && offset(value) == 0;
+    }
+
+    /**
+     * How far {@code value} lies past the step before it, without computing {@code value - min}, which may overflow.
+     */
+    private long offset(long value) {
+        return Math.floorMod(Math.floorMod(value, step) - Math.floorMod(min, step), step);
+    }
+}
@@ -0,0 +1,126 @@
+package com.rainchat.rlib.commands.services;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-sender token buckets, each a single {@link AtomicLong} updated by compare-and-set: the bucket stores the
+ * time at which it will be full again, and a request is allowed while that lies no more than {@code burst - 1}
+ * intervals ahead. No locks are taken.
+ * <p>
+ * A bucket that has refilled completely behaves like a fresh one, so it is dropped by the next sweep. Sweeps
+ * run on the calling thread every {@value #SWEEP_EVERY} requests; idle senders do not hold on to memory.
+ */
+public final class RateLimiter {
+
+    private static final int SWEEP_EVERY = 1024;
+    // Marks a bucket a sweep has removed; a request that still holds it starts over with a fresh one
+    private static final long EXPIRED = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Map<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger untilSweep = new AtomicInteger(SWEEP_EVERY);
+
+    /**
+     * @param burst requests allowed back to back before the interval applies
+     */
+    public RateLimiter(long interval, TimeUnit unit, int burst) {
+        if (interval <= 0) throw new IllegalArgumentException("interval must be positive");
+        if (burst < 1) throw new IllegalArgumentException("burst must be at least 1");
+        this.intervalNanos = unit.toNanos(interval);
+        this.toleranceNanos = Math.multiplyExact(intervalNanos, burst - 1L);
+    }
+
+    /**
+     * Takes a token for the sender if one is available.
+     *
+     * @return {@code 0} if the request is allowed, otherwise how many nanoseconds until it would be
+     */
+    public long tryAcquire(CommandSender sender) {
+        return tryAcquire(key(sender), System.nanoTime());
+    }
+
+    long tryAcquire(Object key, long now) {
+        if (untilSweep.decrementAndGet() <= 0) {
+            untilSweep.set(SWEEP_EVERY);
+            sweep(now);
+        }
+        while (true) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                // A fresh bucket is full: the request takes its first token
+                AtomicLong fresh = new AtomicLong(now + intervalNanos);
+                bucket = buckets.putIfAbsent(key, fresh);
+                if (bucket == null) return 0;
+            }
+
+            long full = bucket.get();
+            if (full == EXPIRED) {
+                buckets.remove(key, bucket);
+                continue;
+            }
+            long start = full - now > 0 ? full : now;
+            long wait = start - now - toleranceNanos;
+            if (wait > 0) return wait;
+            if (bucket.compareAndSet(full, start + intervalNanos)) return 0;
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire(CommandSender)} for a request that was handed on instead of
+     * served, so the one that serves it is not charged twice. Never fills the bucket past full.
+     */
+    public void refund(CommandSender sender) {
+        refund(key(sender), System.nanoTime());
+    }
+
+    void refund(Object key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) return;
+        while (true) {
+            long full = bucket.get();
+            if (full == EXPIRED || full - now <= 0) return;
+            long refunded = full - intervalNanos;
+            if (bucket.compareAndSet(full, refunded - now > 0 ? refunded : now)) return;
+        }
+    }
+
+    /**
+     * Drops the buckets that have refilled completely.
+     */
+    public void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    private void sweep(long now) {
+        for (Map.Entry<Object, AtomicLong> entry : buckets.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            long full = bucket.get();
+            if (full != EXPIRED && full - now <= 0 && bucket.compareAndSet(full, EXPIRED)) {
+                buckets.remove(entry.getKey(), bucket);
+            }
+        }
+    }
+
+    public void evict(CommandSender sender) {
+        buckets.remove(key(sender));
+    }
+
+    /**
+     * @return the number of senders currently tracked
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private static Object key(CommandSender sender) {
+        return sender instanceof Player ? ((Player) sender).getUniqueId() : sender.getName();
+    }
+}
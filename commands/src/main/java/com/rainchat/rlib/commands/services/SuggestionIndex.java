@@ -0,0 +1,165 @@
+package com.rainchat.rlib.commands.services;
+
+import java.util.*;
+
+/**
+ * Immutable completion source backed by an array sorted on the lowercased values.
+ * A prefix lookup is two binary searches and returns a view over the matching range.
+ */
+public final class SuggestionIndex implements CompletionSource {
+
+    private static final SuggestionIndex EMPTY = new SuggestionIndex(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+    private volatile BkTree<String> fuzzy;
+
+    private SuggestionIndex(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static SuggestionIndex empty() {
+        return EMPTY;
+    }
+
+    public static SuggestionIndex of(Collection<String> suggestions) {
+        String[] values = suggestions.toArray(new String[0]);
+        String[] keys = new String[values.length];
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = values[i].toLowerCase(Locale.ROOT);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+
+        String[] sortedKeys = new String[values.length];
+        String[] sortedValues = new String[values.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        return new SuggestionIndex(sortedKeys, sortedValues);
+    }
+
+    /**
+     * Returns a copy of this index with {@code value} inserted at its sorted position.
+     */
+    public SuggestionIndex with(String value) {
+        String key = value.toLowerCase(Locale.ROOT);
+        int at = Arrays.binarySearch(keys, key);
+        if (at >= 0 && values[at].equals(value)) return this;
+        if (at < 0) at = -at - 1;
+
+        String[] newKeys = new String[keys.length + 1];
+        String[] newValues = new String[values.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(values, 0, newValues, 0, at);
+        newKeys[at] = key;
+        newValues[at] = value;
+        System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+        System.arraycopy(values, at, newValues, at + 1, values.length - at);
+        return new SuggestionIndex(newKeys, newValues);
+    }
+
+    /**
+     * Returns a copy of this index without {@code value}.
+     */
+    public SuggestionIndex without(String value) {
+        int at = Arrays.binarySearch(keys, value.toLowerCase(Locale.ROOT));
+        if (at < 0) return this;
+
+        String[] newKeys = new String[keys.length - 1];
+        String[] newValues = new String[values.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(values, 0, newValues, 0, at);
+        System.arraycopy(keys, at + 1, newKeys, at, keys.length - at - 1);
+        System.arraycopy(values, at + 1, newValues, at, values.length - at - 1);
+        return new SuggestionIndex(newKeys, newValues);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix.isEmpty()) {
+            return new Range(values, 0, Math.min(values.length, limit));
+        }
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int from = lowerBound(key);
+        int to = upperBound(key, from);
+        return new Range(values, from, (int) Math.min(to, (long) from + limit));
+    }
+
+    /**
+     * The typo index is built on first use; an index that is never mistyped against costs nothing.
+     */
+    @Override
+    public List<String> closest(String input, int limit) {
+        BkTree<String> fuzzy = this.fuzzy;
+        if (fuzzy == null) {
+            fuzzy = new BkTree<>();
+            for (String value : values) {
+                fuzzy.add(value, value);
+            }
+            this.fuzzy = fuzzy;
+        }
+        return fuzzy.search(input, BkTree.tolerance(input), limit, value -> true);
+    }
+
+    public List<String> values() {
+        return new Range(values, 0, values.length);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(String key, int low) {
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(key)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Range extends AbstractList<String> implements RandomAccess {
+        private final String[] values;
+        private final int from;
+        private final int size;
+
+        private Range(String[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.size = to - from;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, size);
+            return values[from + index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.rainchat.rlib.commands.services;
 
-import com.rainchat.rlib.commands.annotation.Completion;
+import com.rainchat.rlib.commands.jfr.CommandCompletionEvent;
 import org.bukkit.*;
 import org.bukkit.block.Biome;
 import org.bukkit.command.CommandSender;
@@ -8,98 +8,340 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 
 import java.util.*;
-import java.util.function.BiFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class TabCompleterService {
 
-    private final Map<String, TriFunction<CommandSender, Class<?>, String, List<String>>> completers = new HashMap<>();
+    private final Map<String, TriFunction<CommandSender, Class<?>, String, List<String>>> completers = new ConcurrentHashMap<>();
+    private final Map<String, TriFunction<CommandSender, Class<?>, String, CompletionSource>> sources = new ConcurrentHashMap<>();
+    private final Map<String, CachedCompleter> cachedCompleters = new ConcurrentHashMap<>();
+    private final Set<String> threadSafe = ConcurrentHashMap.newKeySet();
+    private final Map<String, SuggestionIndex> literalSources = new ConcurrentHashMap<>();
+    private final Map<String, CompletionSource> rangeSources = new ConcurrentHashMap<>();
+    private final ClassValue<SuggestionIndex> enumNames = new ClassValue<>() {
+        @Override
+        protected SuggestionIndex computeValue(Class<?> type) {
+            return SuggestionIndex.of(Arrays.stream(((Class<? extends Enum<?>>) type).getEnumConstants())
+                    .map(Enum::name)
+                    .collect(Collectors.toList()));
+        }
+    };
+    private final PlayerIndex playerIndex;
+    private final CompletionSessions sessions = new CompletionSessions();
+    private volatile SuggestionIndex loadedWorlds = SuggestionIndex.empty();
+    private volatile boolean tracking;
+    private volatile int suggestionLimit = Integer.MAX_VALUE;
+    // Faster than anyone types: 20 requests a second, 40 in a burst
+    private volatile RateLimiter tabLimiter = new RateLimiter(50, TimeUnit.MILLISECONDS, 40);
 
     public TabCompleterService() {
+        this(new PlayerIndex());
+    }
+
+    /**
+     * @param playerIndex the online-player index to complete {@code @player} from, shared with {@link TypeParserService}
+     */
+    public TabCompleterService(PlayerIndex playerIndex) {
+        this.playerIndex = playerIndex;
         // Инициализация с лямбда-выражениями
-        addCompleter("@player", (sender, args, extra) -> Bukkit.getOnlinePlayers().stream()
+        addSource("@player", true, (sender, args, extra) -> tracking ? playerIndex.visibleTo(sender) : SuggestionIndex.of(Bukkit.getOnlinePlayers().stream()
                 .map(Player::getName)
-                .collect(Collectors.toList()));
-        addCompleter("@world", (sender, args, extra) -> Bukkit.getServer().getWorlds().stream()
+                .collect(Collectors.toList())));
+        addSource("@world", true, (sender, args, extra) -> tracking ? loadedWorlds : SuggestionIndex.of(Bukkit.getServer().getWorlds().stream()
                 .map(World::getName)
-                .collect(Collectors.toList()));
-        addCompleter("@material", (sender, args, extra) -> Arrays.stream(Material.values())
+                .collect(Collectors.toList())));
+        addSource("@material", true, frozen(() -> SuggestionIndex.of(Arrays.stream(Material.values())
                 .filter(Material::isItem)
                 .map(material -> material.name().toLowerCase())
-                .collect(Collectors.toList()));
-        addCompleter("@entity", (sender, args, extra) -> Arrays.stream(EntityType.values())
+                .collect(Collectors.toList()))));
+        addSource("@entity", true, frozen(() -> SuggestionIndex.of(Arrays.stream(EntityType.values())
                 .filter(EntityType::isSpawnable)
                 .map(EntityType::name)
-                .collect(Collectors.toList()));
-        addCompleter("@biome", (sender, args, extra) -> Arrays.stream(Biome.values())
+                .collect(Collectors.toList()))));
+        addSource("@biome", true, frozen(() -> SuggestionIndex.of(Arrays.stream(Biome.values())
                 .map(Biome::name)
-                .collect(Collectors.toList()));
-        addCompleter("@chatcolor", (sender, args, extra) -> Arrays.stream(ChatColor.values())
+                .collect(Collectors.toList()))));
+        addSource("@chatcolor", true, frozen(() -> SuggestionIndex.of(Arrays.stream(ChatColor.values())
                 .map(ChatColor::name)
-                .collect(Collectors.toList()));
-        addCompleter("@sound", (sender, args, extra) -> Arrays.stream(Sound.values())
+                .collect(Collectors.toList()))));
+        addSource("@sound", true, frozen(() -> SuggestionIndex.of(Arrays.stream(Sound.values())
                 .map(Sound::name)
-                .collect(Collectors.toList()));
-        addCompleter("@enum", (sender, args, extra) -> {
+                .collect(Collectors.toList()))));
+        addSource("@enum", true, (sender, args, extra) -> {
             if (args != null && args.isEnum()) {
-                return Arrays.stream(((Class<? extends Enum<?>>) args).getEnumConstants())
-                        .map(Enum::name)
-                        .collect(Collectors.toList());
+                return enumNames.get(args);
             }
-            return new ArrayList<>();
-        });
-        addCompleter("@range", (sender, args, extra) -> {
-            String[] parts = extra.split("-");
-            int min, max;
-            try {
-                min = Integer.parseInt(parts[0]);
-                max = Integer.parseInt(parts[1]);
-            } catch (Exception e) {
-                return new ArrayList<>();
-            }
-            List<String> range = new ArrayList<>();
-            for (int i = min; i <= max; i++) {
-                range.add(String.valueOf(i));
-            }
-            return range;
+            return SuggestionIndex.empty();
         });
+        addSource("@range", true, (sender, args, extra) -> extra == null ? SuggestionIndex.empty() : rangeSources.computeIfAbsent(extra, RangeSource::parse));
     }
 
     public void addCompleter(String parameter, TriFunction<CommandSender, Class<?>, String, List<String>> completer) {
+        addCompleter(parameter, false, completer);
+    }
+
+    /**
+     * @param threadSafe whether the completer may be called off the main thread during async tab completion
+     */
+    public void addCompleter(String parameter, boolean threadSafe, TriFunction<CommandSender, Class<?>, String, List<String>> completer) {
         completers.put(parameter, completer);
+        sources.remove(parameter);
+        cachedCompleters.remove(parameter);
+        setThreadSafe(parameter, threadSafe);
+    }
+
+    /**
+     * Registers a completer that returns an indexed source, e.g. a {@link SuggestionIndex} built once,
+     * so prefix filtering does not have to scan a plain list.
+     */
+    public void addSource(String parameter, TriFunction<CommandSender, Class<?>, String, CompletionSource> source) {
+        addSource(parameter, false, source);
+    }
+
+    public void addSource(String parameter, boolean threadSafe, TriFunction<CommandSender, Class<?>, String, CompletionSource> source) {
+        sources.put(parameter, source);
+        completers.remove(parameter);
+        cachedCompleters.remove(parameter);
+        setThreadSafe(parameter, threadSafe);
+    }
+
+    /**
+     * Registers a completer whose results are shared between all senders and reused until they expire
+     * or {@link #invalidate(String)} is called for the parameter.
+     *
+     * @param ttl how long results stay valid, or {@code 0} to keep them until invalidated
+     */
+    public void addCompleter(String parameter, TriFunction<CommandSender, Class<?>, String, List<String>> completer, long ttl, TimeUnit unit) {
+        CachedCompleter cached = new CachedCompleter(completer, unit.toNanos(ttl));
+        completers.put(parameter, cached);
+        sources.remove(parameter);
+        cachedCompleters.put(parameter, cached);
+        setThreadSafe(parameter, false);
+    }
+
+    /**
+     * Whether completions for the given {@code @Completion} value can be computed off the main thread.
+     * Literal completions always can.
+     */
+    public boolean isThreadSafe(String parameter) {
+        String mainParam = mainParameter(parameter);
+        if (sources.containsKey(mainParam) || completers.containsKey(mainParam)) {
+            return threadSafe.contains(mainParam);
+        }
+        return true;
+    }
+
+    private void setThreadSafe(String parameter, boolean safe) {
+        if (safe) {
+            threadSafe.add(parameter);
+        } else {
+            threadSafe.remove(parameter);
+        }
+    }
+
+    public void invalidate(String parameter) {
+        CachedCompleter cached = cachedCompleters.get(parameter);
+        if (cached != null) cached.entries.clear();
+    }
+
+    /**
+     * Switches {@code @player} and {@code @world} to the incrementally maintained indexes.
+     * Called once the {@link CompletionSourceListener} is registered.
+     */
+    public void trackDynamicSources() {
+        playerIndex.reset();
+        loadedWorlds = SuggestionIndex.of(Bukkit.getWorlds().stream()
+                .map(World::getName)
+                .collect(Collectors.toList()));
+        tracking = true;
+    }
+
+    // Remembered @player and @world results go stale when those lists change, so every session is dropped
+    void playerJoined(Player player) {
+        playerIndex.add(player);
+        sessions.clear();
+    }
+
+    void playerQuit(Player player) {
+        playerIndex.remove(player);
+        sessions.clear();
+        RateLimiter tabLimiter = this.tabLimiter;
+        if (tabLimiter != null) tabLimiter.evict(player);
+    }
+
+    void worldLoaded(String name) {
+        loadedWorlds = loadedWorlds.with(name);
+        sessions.clear();
+    }
+
+    void worldUnloaded(String name) {
+        loadedWorlds = loadedWorlds.without(name);
+        sessions.clear();
+    }
+
+    public CompletionSessions getSessions() {
+        return sessions;
+    }
+
+    public PlayerIndex getPlayerIndex() {
+        return playerIndex;
+    }
+
+    public int getSuggestionLimit() {
+        return suggestionLimit;
+    }
+
+    /**
+     * Caps the number of suggestions returned for a single tab press.
+     */
+    public void setSuggestionLimit(int suggestionLimit) {
+        this.suggestionLimit = suggestionLimit;
+    }
+
+    /**
+     * Whether the sender is still within the tab-completion rate limit; takes one request from its allowance.
+     * Requests over the limit are answered with no suggestions.
+     */
+    public boolean tryTabComplete(CommandSender sender) {
+        RateLimiter tabLimiter = this.tabLimiter;
+        return tabLimiter == null || tabLimiter.tryAcquire(sender) == 0;
+    }
+
+    /**
+     * Returns the allowance taken by {@link #tryTabComplete(CommandSender)} for a request that is left to be
+     * completed elsewhere.
+     */
+    public void refundTabComplete(CommandSender sender) {
+        RateLimiter tabLimiter = this.tabLimiter;
+        if (tabLimiter != null) tabLimiter.refund(sender);
+    }
+
+    /**
+     * Replaces the per-sender tab-completion limit; {@code null} removes it.
+     */
+    public void setTabCompletionLimit(RateLimiter tabLimiter) {
+        this.tabLimiter = tabLimiter;
+    }
+
+    private static TriFunction<CommandSender, Class<?>, String, CompletionSource> frozen(Supplier<SuggestionIndex> source) {
+        return new TriFunction<>() {
+            private volatile SuggestionIndex index;
+
+            @Override
+            public CompletionSource apply(CommandSender sender, Class<?> args, String extra) {
+                SuggestionIndex result = index;
+                if (result == null) {
+                    index = result = source.get();
+                }
+                return result;
+            }
+        };
     }
 
     public List<String> getCompletions(String parameter, CommandSender sender, Class<?> args) {
-        String[] parts = parameter.split(":", 2);
-        String mainParam = parts[0];
-        String extraParam = (parts.length > 1) ? parts[1] : null;
+        String mainParam = mainParameter(parameter);
 
         TriFunction<CommandSender, Class<?>, String, List<String>> completer = completers.get(mainParam);
-        if (completer != null) {
+        CommandCompletionEvent event = new CommandCompletionEvent();
+        event.begin();
+        List<String> suggestions = completer != null
+                ? complete(completer, parameter, sender, args)
+                : getSource(parameter, sender, args).suggest("", Integer.MAX_VALUE);
+        event.commit(null, parameter, null, suggestions.size());
+        return suggestions;
+    }
+
+    /**
+     * Runs a list-based completer without recording an event, so callers that record their own don't nest one.
+     */
+    private static List<String> complete(TriFunction<CommandSender, Class<?>, String, List<String>> completer,
+                                         String parameter, CommandSender sender, Class<?> args) {
+        try {
+            List<String> list = completer.apply(sender, args, extraParameter(parameter));
+            return list == null || list.isEmpty() ? new ArrayList<>() : list;
+        } catch (ClassCastException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    public CompletionSource getSource(String parameter, CommandSender sender, Class<?> args) {
+        String mainParam = mainParameter(parameter);
+
+        TriFunction<CommandSender, Class<?>, String, CompletionSource> source = sources.get(mainParam);
+        if (source != null) {
             try {
-                List<String> list = completer.apply(sender, args, extraParam);
-                if (list.isEmpty()) return new ArrayList<>();
-                return list;
+                return source.apply(sender, args, extraParameter(parameter));
             } catch (ClassCastException e) {
-                return new ArrayList<>();
+                return SuggestionIndex.empty();
             }
         }
 
+        TriFunction<CommandSender, Class<?>, String, List<String>> completer = completers.get(mainParam);
+        if (completer != null) {
+            return CompletionSource.of(complete(completer, parameter, sender, args));
+        }
+
+        return literalSources.computeIfAbsent(parameter, TabCompleterService::literalSource);
+    }
+
+    private static SuggestionIndex literalSource(String parameter) {
         // Если символ @ отсутствует или не совпадает ни с одним из списка
         if (!parameter.startsWith("@")) {
-            String[] split = parameter.split("\\|");
-            if (split.length > 1) {
-                return Arrays.asList(split);
-            }
-            return Collections.singletonList(parameter);
+            return SuggestionIndex.of(Arrays.asList(parameter.split("\\|")));
         }
 
         // Если параметр не совпадает ни с одним из списка
-        return Collections.singletonList(parameter);
+        return SuggestionIndex.of(Collections.singletonList(parameter));
+    }
+
+    private static String mainParameter(String parameter) {
+        int separator = parameter.indexOf(':');
+        return separator < 0 ? parameter : parameter.substring(0, separator);
+    }
+
+    private static String extraParameter(String parameter) {
+        int separator = parameter.indexOf(':');
+        return separator < 0 ? null : parameter.substring(separator + 1);
     }
 
     @FunctionalInterface
     public interface TriFunction<T, U, V, R> {
         R apply(T t, U u, V v);
     }
+
+    private static final class CachedCompleter implements TriFunction<CommandSender, Class<?>, String, List<String>> {
+        private final TriFunction<CommandSender, Class<?>, String, List<String>> delegate;
+        private final long ttlNanos;
+        private final Map<String, CachedList> entries = new ConcurrentHashMap<>();
+
+        private CachedCompleter(TriFunction<CommandSender, Class<?>, String, List<String>> delegate, long ttlNanos) {
+            this.delegate = delegate;
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public List<String> apply(CommandSender sender, Class<?> args, String extra) {
+            String key = (args == null ? "" : args.getName()) + ':' + extra;
+            long now = System.nanoTime();
+            CachedList cached = entries.get(key);
+            if (cached == null || (ttlNanos > 0 && now - cached.createdAt > ttlNanos)) {
+                cached = new CachedList(Collections.unmodifiableList(new ArrayList<>(delegate.apply(sender, args, extra))), now);
+                entries.put(key, cached);
+            }
+            return cached.values;
+        }
+    }
+
+    private static final class CachedList {
+        private final List<String> values;
+        private final long createdAt;
+
+        private CachedList(List<String> values, long createdAt) {
+            this.values = values;
+            this.createdAt = createdAt;
+        }
+    }
 }
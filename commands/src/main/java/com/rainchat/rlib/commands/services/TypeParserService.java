@@ -1,53 +1,125 @@
 package com.rainchat.rlib.commands.services;
 
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class TypeParserService {
 
-    private final Map<Class<?>, Parser> parsers = new HashMap<>();
+    private final Map<Class<?>, Parser> parsers = new ConcurrentHashMap<>();
+    private final PlayerIndex playerIndex;
+    private final ClassValue<EnumParser> enumParsers = new ClassValue<>() {
+        @Override
+        protected EnumParser computeValue(Class<?> type) {
+            return new EnumParser(type);
+        }
+    };
 
     public TypeParserService() {
-        registerParser(Boolean.TYPE, Boolean::parseBoolean);
-        registerParser(Byte.TYPE, Byte::parseByte);
-        registerParser(Short.TYPE, Short::parseShort);
-        registerParser(Integer.TYPE, Integer::parseInt);
-        registerParser(Float.TYPE, Float::parseFloat);
-        registerParser(Long.TYPE, Long::parseLong);
-        registerParser(Double.TYPE, Double::parseDouble);
+        this(null);
+    }
+
+    /**
+     * @param playerIndex index to resolve {@link Player} arguments from, kept current by {@link CompletionSourceListener},
+     *                    or {@code null} to ask Bukkit directly
+     */
+    public TypeParserService(PlayerIndex playerIndex) {
+        this.playerIndex = playerIndex;
+        registerParser(Boolean.TYPE, PrimitiveParsers.BOOLEAN);
+        registerParser(Byte.TYPE, PrimitiveParsers.BYTE);
+        registerParser(Short.TYPE, PrimitiveParsers.SHORT);
+        registerParser(Integer.TYPE, PrimitiveParsers.INT);
+        registerParser(Float.TYPE, PrimitiveParsers.FLOAT);
+        registerParser(Long.TYPE, PrimitiveParsers.LONG);
+        registerParser(Double.TYPE, PrimitiveParsers.DOUBLE);
         registerParser(String.class, (string) -> string);
-        registerParser(Player.class, Bukkit::getPlayer);
+        registerParser(Player.class, new Parser() {
+            @Override
+            public Object parseObject(String string) {
+                return playerIndex != null ? playerIndex.find(string) : Bukkit.getPlayer(string);
+            }
+
+            @Override
+            public ParseResult parse(String string) {
+                Player player = (Player) parseObject(string);
+                return player != null ? ParseResult.success(player) : ParseResult.PLAYER_NOT_FOUND;
+            }
+        });
     }
 
-    private static Object parseEnum(Class<?> enumType, String arg) {
-        for (Object constant : enumType.getEnumConstants()) {
-            if (constant.toString().equalsIgnoreCase(arg)) {
-                return constant;
+    /**
+     * Registers the {@link OfflinePlayer} parser: online players by name, everyone else by the UUID {@code index}
+     * has for the name. Names the index does not know are rejected instead of creating a new offline player.
+     * Must be called before registering handlers that take an {@code OfflinePlayer}.
+     */
+    public void registerOfflinePlayers(OfflinePlayerIndex index) {
+        registerParser(OfflinePlayer.class, new Parser() {
+            @Override
+            public Object parseObject(String string) {
+                Player online = playerIndex != null ? playerIndex.getExact(string) : Bukkit.getPlayerExact(string);
+                if (online != null) return online;
+                UUID uuid = index.find(string);
+                return uuid != null ? Bukkit.getOfflinePlayer(uuid) : null;
             }
-        }
-        throw new IllegalArgumentException(arg + " is not a valid value for " + enumType.getCanonicalName() + ".");
+
+            @Override
+            public ParseResult parse(String string) {
+                OfflinePlayer player = (OfflinePlayer) parseObject(string);
+                return player != null ? ParseResult.success(player) : ParseResult.OFFLINE_PLAYER_NOT_FOUND;
+            }
+        });
+    }
+
+    /**
+     * Makes {@code alias} parse to {@code value}, in addition to the constant's own name.
+     */
+    public <E extends Enum<E>> void registerEnumAlias(Class<E> type, String alias, E value) {
+        enumParsers.get(type).alias(alias, value);
     }
 
     public void registerParser(Class<?> type, Parser objParser) {
         parsers.put(type, objParser);
     }
 
-    public Object parseObject(Class<?> type, String parse) {
+    public Parser getParser(Class<?> type) {
         Parser objParser = parsers.get(type);
-        try {
-            if (objParser != null) {
-                return objParser.parseObject(parse);
-            }
-            if (type.isEnum()) {
-                return parseEnum(type, parse);
-            }
-        } catch (Exception e) {
-            return null;
+        if (objParser == null && type.isEnum()) {
+            return enumParsers.get(type);
         }
-        throw new IllegalArgumentException("No registered parser for " + type.getCanonicalName() + ".");
+        return objParser;
+    }
+
+    /**
+     * Returns the parser for {@code type} if it is of the given kind, e.g. {@code getParser(int.class, IntParser.class)}
+     * to parse without boxing.
+     */
+    public <P extends Parser> P getParser(Class<?> type, Class<P> parserType) {
+        Parser objParser = getParser(type);
+        return parserType.isInstance(objParser) ? parserType.cast(objParser) : null;
+    }
+
+    /**
+     * @return the parsed value, or {@code null} if the input was rejected
+     */
+    public Object parseObject(Class<?> type, String parse) {
+        ParseResult result = parse(type, parse);
+        return result.isSuccess() ? result.getValue() : null;
+    }
+
+    public ParseResult parse(Class<?> type, String parse) {
+        Parser objParser = getParser(type);
+        if (objParser == null) {
+            throw new IllegalArgumentException("No registered parser for " + type.getCanonicalName() + ".");
+        }
+        return objParser.parse(parse);
     }
 
     public boolean parserExistsFor(Class<?> type) {
@@ -56,5 +128,122 @@ public final class TypeParserService {
 
     public interface Parser {
         Object parseObject(String string);
+
+        /**
+         * Parses without throwing. The default adapts {@link #parseObject(String)}: an exception becomes
+         * {@link ParseResult#INVALID_VALUE}, a {@code null} result is passed on as a value.
+         */
+        default ParseResult parse(String string) {
+            try {
+                return ParseResult.success(parseObject(string));
+            } catch (RuntimeException e) {
+                return ParseResult.INVALID_VALUE;
+            }
+        }
+
+        /**
+         * Accepted values close to rejected {@code input}, closest first. Parsers without a fixed set of values
+         * return nothing.
+         */
+        default List<String> closest(String input, int limit) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Parser for {@code int}. {@link #parseInt(String)} throws on invalid input; {@link #parse(String)} does not.
+     */
+    @FunctionalInterface
+    public interface IntParser extends Parser {
+        int parseInt(String string);
+
+        @Override
+        default Object parseObject(String string) {
+            return parseInt(string);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LongParser extends Parser {
+        long parseLong(String string);
+
+        @Override
+        default Object parseObject(String string) {
+            return parseLong(string);
+        }
+    }
+
+    @FunctionalInterface
+    public interface DoubleParser extends Parser {
+        double parseDouble(String string);
+
+        @Override
+        default Object parseObject(String string) {
+            return parseDouble(string);
+        }
+    }
+
+    @FunctionalInterface
+    public interface BooleanParser extends Parser {
+        boolean parseBoolean(String string);
+
+        @Override
+        default Object parseObject(String string) {
+            return parseBoolean(string);
+        }
+    }
+
+    /**
+     * Case-insensitive lookup of an enum's constants by {@code toString()}, built once per enum class.
+     */
+    private static final class EnumParser implements Parser {
+        private final Class<?> type;
+        private volatile Map<String, Object> constants;
+        private volatile BkTree<String> fuzzy;
+
+        private EnumParser(Class<?> type) {
+            this.type = type;
+            Object[] values = type.getEnumConstants();
+            Map<String, Object> constants = new HashMap<>(values.length * 2);
+            for (Object constant : values) {
+                constants.putIfAbsent(constant.toString().toLowerCase(Locale.ROOT), constant);
+            }
+            this.constants = constants;
+        }
+
+        private synchronized void alias(String alias, Object value) {
+            Map<String, Object> constants = new HashMap<>(this.constants);
+            constants.put(alias.toLowerCase(Locale.ROOT), value);
+            this.constants = constants;
+            this.fuzzy = null;
+        }
+
+        @Override
+        public Object parseObject(String string) {
+            Object constant = constants.get(string.toLowerCase(Locale.ROOT));
+            if (constant == null) {
+                throw new IllegalArgumentException(string + " is not a valid value for " + type.getCanonicalName() + ".");
+            }
+            return constant;
+        }
+
+        @Override
+        public ParseResult parse(String string) {
+            Object constant = constants.get(string.toLowerCase(Locale.ROOT));
+            return constant != null ? ParseResult.success(constant) : ParseResult.INVALID_VALUE;
+        }
+
+        @Override
+        public List<String> closest(String input, int limit) {
+            BkTree<String> fuzzy = this.fuzzy;
+            if (fuzzy == null) {
+                fuzzy = new BkTree<>();
+                for (String key : constants.keySet()) {
+                    fuzzy.add(key, key);
+                }
+                this.fuzzy = fuzzy;
+            }
+            return fuzzy.search(input, BkTree.tolerance(input), limit, key -> true);
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.rainchat.rlib.commands;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Proxy-backed senders and players for tests and benchmarks that run without a server.
+ * A {@code null} permission set grants every permission and makes the sender an operator.
+ */
+public final class TestSenders {
+
+    private TestSenders() {
+    }
+
+    public static CommandSender sender(String name, Set<String> permissions) {
+        return create(CommandSender.class, name, null, permissions, null);
+    }
+
+    public static Player player(String name, Set<String> permissions) {
+        return create(Player.class, name, UUID.nameUUIDFromBytes(name.getBytes()), permissions, null);
+    }
+
+    /**
+     * Creates a sender of the given type. Methods the fixture does not answer itself go to {@code fallback},
+     * or return the zero value of their type when it is {@code null}.
+     */
+    public static <T extends CommandSender> T create(Class<T> type, String name, UUID uuid, Set<String> permissions,
+                                                     InvocationHandler fallback) {
+        return type.cast(Proxy.newProxyInstance(TestSenders.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getName":
+                        case "getDisplayName":
+                        case "toString":
+                            return name;
+                        case "getUniqueId":
+                            return uuid;
+                        case "hasPermission":
+                            if (permissions == null) return true;
+                            return args[0] instanceof String && permissions.contains(args[0]);
+                        case "isOp":
+                            return permissions == null;
+                        case "canSee":
+                        case "isOnline":
+                            return true;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            if (fallback != null) return fallback.invoke(proxy, method, args);
+                            return defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    public static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.rainchat.rlib.commands.components;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class CommandArgumentsTest extends TestCase {
+
+    public void testUnquotedSharesArray() {
+        String[] args = {"give", "Steve", "diamond"};
+        CommandArguments arguments = CommandArguments.of(args);
+        assertSame(args, arguments.tokens());
+        assertEquals(3, arguments.length());
+    }
+
+    public void testQuotedTokens() {
+        CommandArguments arguments = CommandArguments.of(new String[]{"msg", "\"hello", "big", "world\"", "\"x\"", "end"});
+        assertEquals(Arrays.asList("msg", "hello big world", "x", "end"), Arrays.asList(arguments.tokens()));
+    }
+
+    public void testUnclosedQuoteStaysRaw() {
+        String[] args = {"say", "\"hello", "world"};
+        assertEquals(Arrays.asList(args), Arrays.asList(CommandArguments.of(args).tokens()));
+        assertEquals(Arrays.asList("\""), Arrays.asList(CommandArguments.of(new String[]{"\""}).tokens()));
+    }
+
+    public void testEmptyQuotes() {
+        assertEquals(Arrays.asList("a", ""), Arrays.asList(CommandArguments.of(new String[]{"a", "\"\""}).tokens()));
+    }
+
+    public void testCursor() {
+        CommandArguments arguments = CommandArguments.of(new String[]{"a", "\"b c\"", "d"});
+        assertTrue(arguments.hasNext());
+        assertEquals("a", arguments.next());
+        assertEquals(Arrays.asList("b c", "d"), Arrays.asList(arguments.rest()));
+        assertEquals("b c", arguments.next());
+        assertEquals("d", arguments.next());
+        assertFalse(arguments.hasNext());
+        assertEquals(0, arguments.rest().length);
+    }
+
+    public void testGreedyTailKeepsTextAsTyped() {
+        CommandArguments arguments = CommandArguments.of(new String[]{"ban", "Steve", "\"griefing", "spawn\"", "again"});
+        arguments.next();
+        arguments.next();
+        assertEquals("\"griefing spawn\" again", arguments.remainingText());
+        assertFalse(arguments.hasNext());
+        assertEquals("", arguments.remainingText());
+    }
+
+    public void testGreedyTailAfterQuotedToken() {
+        CommandArguments arguments = CommandArguments.of(new String[]{"\"a", "b\"", "c", "d"});
+        arguments.next();
+        assertEquals("c d", arguments.remainingText());
+
+        CommandArguments unquoted = CommandArguments.of(new String[]{"x", "y", "z"});
+        unquoted.position(1);
+        assertEquals("y z", unquoted.remainingText());
+    }
+}
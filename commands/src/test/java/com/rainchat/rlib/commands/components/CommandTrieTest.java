@@ -0,0 +1,75 @@
+package com.rainchat.rlib.commands.components;
+
+import com.rainchat.rlib.commands.TestSenders;
+import junit.framework.TestCase;
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class CommandTrieTest extends TestCase {
+
+    private static final MethodInvoker NOTHING = args -> null;
+
+    private CommandTrie trie;
+    private CommandTrie.Node give;
+    private CommandTrie.Node giveAll;
+    private CommandTrie.Node giveall;
+
+    @Override
+    protected void setUp() {
+        trie = new CommandTrie();
+        give = command("give");
+        giveAll = command("give all");
+        giveall = command("giveall");
+        trie.insert("give kit");
+        trie.buildFuzzyIndex();
+    }
+
+    private CommandTrie.Node command(String pattern) {
+        CommandTrie.Node node = trie.insert(pattern);
+        node.commandInvoker = NOTHING;
+        node.pattern = pattern;
+        return node;
+    }
+
+    public void testTokensAreNotPrefixes() {
+        assertSame(give, trie.findCommand("give", new String[]{"Steve", "5"}, 2));
+        assertSame(giveall, trie.findCommand("giveall", new String[]{"5"}, 1));
+        assertNull(trie.findCommand("giv", new String[0], 0));
+        assertNull(trie.findCommand("givealll", new String[0], 0));
+    }
+
+    public void testDeepestCommandWins() {
+        assertSame(giveAll, trie.findCommand("give", new String[]{"all", "diamond"}, 2));
+        assertSame(give, trie.findCommand("give", new String[]{"allx"}, 1));
+        assertSame(give, trie.findCommand("give", new String[]{"all"}, 0));
+        // A path node without a handler falls back to the command above it
+        assertSame(give, trie.findCommand("give", new String[]{"kit"}, 1));
+    }
+
+    public void testCaseInsensitive() {
+        assertSame(giveAll, trie.findCommand("GIVE", new String[]{"All"}, 1));
+        assertEquals("give all", giveAll.getPath());
+        assertEquals(2, giveAll.getDepth());
+    }
+
+    public void testWalk() {
+        assertSame(giveAll, trie.walk("give", new String[]{"all"}, 1));
+        assertNull(trie.walk("give", new String[]{"al"}, 1));
+        assertSame(give, trie.walkPartially("give", new String[]{"al", "x"}, 2));
+        assertNull(trie.walkPartially("gift", new String[0], 0));
+    }
+
+    public void testClosestChildrenRespectPermissions() {
+        trie.markCommandPath(giveAll, null);
+        trie.markCommandPath(trie.walk("give", new String[]{"kit"}, 1), "kits.use");
+
+        CommandSender steve = TestSenders.sender("Steve", Set.of());
+        CommandSender kitUser = TestSenders.sender("Alex", Set.of("kits.use"));
+        assertEquals(Arrays.asList("all"), trie.closestChildren(give, "al", steve, null, 5));
+        assertEquals(Collections.emptyList(), trie.closestChildren(give, "kot", steve, null, 5));
+        assertEquals(Arrays.asList("kit"), trie.closestChildren(give, "kot", kitUser, null, 5));
+    }
+}
@@ -0,0 +1,73 @@
+package com.rainchat.rlib.commands.loadtest;
+
+import com.rainchat.rlib.commands.CommandController;
+import junit.framework.TestCase;
+
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a short load against {@link CommandController} and fails if any command errors. It only runs when
+ * {@code rlib.loadtest} is set, so regular builds stay fast and timing-independent. Size and limits come from
+ * system properties, so CI can run it longer and gate on latency or allocation, e.g.
+ * {@code mvn test -pl commands -Drlib.loadtest=true -Drlib.loadtest.seconds=30 -Drlib.loadtest.maxP99Micros=500}.
+ * <ul>
+ *     <li>{@code rlib.loadtest.senders} virtual players, default 2000</li>
+ *     <li>{@code rlib.loadtest.threads} worker threads, default the number of processors</li>
+ *     <li>{@code rlib.loadtest.seconds} measured time, default 3</li>
+ *     <li>{@code rlib.loadtest.maxP99Micros} p99 limit for dispatch and completion, unset by default</li>
+ *     <li>{@code rlib.loadtest.maxBytesPerOp} allocation limit for dispatch and completion, unset by default</li>
+ * </ul>
+ */
+public class CommandLoadTest extends TestCase {
+
+    private static final Logger LOGGER = Logger.getLogger(CommandLoadTest.class.getName());
+
+    public void testCommandsUnderLoad() throws InterruptedException {
+        if (!Boolean.getBoolean("rlib.loadtest")) {
+            LOGGER.fine("Skipped, set rlib.loadtest=true to run it");
+            return;
+        }
+        int senders = Integer.getInteger("rlib.loadtest.senders", 2000);
+        VirtualServer server = VirtualServer.start();
+        for (int i = 0; i < senders; i++) {
+            // A few admins, some moderators, everyone else without extra permissions
+            Set<String> permissions = i % 50 == 0 ? Set.of("loadtest.admin", "loadtest.mod")
+                    : i % 10 == 0 ? Set.of("loadtest.mod") : Set.of();
+            server.addPlayer("Player" + i, permissions);
+        }
+
+        CommandController controller = new CommandController(server.getPlugin());
+        controller.registerCommands(new LoadTestCommands());
+
+        LoadHarness harness = new LoadHarness(server, controller)
+                .command(50, "give {player} diamond|stone|diamond_sword {number}")
+                .command(30, "msg {player} see you at spawn")
+                .command(10, "admin kick {player}")
+                .command(5, "admin reload")
+                .command(5, "give {player} stone lots")
+                .duration(Long.getLong("rlib.loadtest.seconds", 3) * 1000);
+        Integer threads = Integer.getInteger("rlib.loadtest.threads");
+        if (threads != null) harness.threads(threads);
+
+        LoadReport report = harness.run();
+        LOGGER.info(report.toString());
+
+        if (report.getFirstError() != null) LOGGER.log(Level.SEVERE, "First command error", report.getFirstError());
+        assertEquals("errors", 0, report.getErrors());
+        assertTrue(report.getDispatch().getCount() > 0);
+        assertTrue(report.getComplete().getCount() > 0);
+
+        Long maxP99Micros = Long.getLong("rlib.loadtest.maxP99Micros");
+        if (maxP99Micros != null) {
+            assertTrue("dispatch p99 " + report.getDispatch(), report.getDispatch().getP99Nanos() <= maxP99Micros * 1000);
+            assertTrue("complete p99 " + report.getComplete(), report.getComplete().getP99Nanos() <= maxP99Micros * 1000);
+        }
+        Long maxBytesPerOp = Long.getLong("rlib.loadtest.maxBytesPerOp");
+        if (maxBytesPerOp != null) {
+            assertTrue("dispatch allocation " + report.getDispatch(), report.getDispatch().getBytesPerOperation() <= maxBytesPerOp);
+            assertTrue("complete allocation " + report.getComplete(), report.getComplete().getBytesPerOperation() <= maxBytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.rainchat.rlib.commands.loadtest;
+
+import com.rainchat.rlib.commands.CommandController;
+import com.rainchat.rlib.commands.components.LatencyHistogram;
+import org.bukkit.command.Command;
+import org.bukkit.entity.Player;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a {@link CommandController} the way a crowd of players would: each virtual sender picks a command line,
+ * types it one key at a time with the occasional typo, asks for suggestions after every keystroke like the client
+ * does, and finally runs it. Senders are spread over worker threads and interleaved, so thousands of typing
+ * sessions are in flight at once.
+ * <p>
+ * Command lines are templates: {@code {player}} becomes a random online player, {@code {number}} a number
+ * from 1 to 64 and {@code a|b|c} one of the alternatives, e.g. {@code "give {player} diamond|stone {number}"}.
+ */
+public final class LoadHarness {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final VirtualServer server;
+    private final List<String> lines = new ArrayList<>();
+    private final List<Integer> weights = new ArrayList<>();
+    private final LongAdder errors = new LongAdder();
+    private List<Player> players = List.of();
+    private int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private long warmupMillis = 1000;
+    private long durationMillis = 3000;
+    private double typoRate = 0.05;
+    private volatile Throwable firstError;
+
+    /**
+     * Failure messages are redirected into the harness' error count, so handler exceptions are reported
+     * instead of only being printed. The per-sender tab completion limit is turned off: virtual senders type
+     * far faster than people, and rejected completions would be measured instead of real ones.
+     */
+    public LoadHarness(VirtualServer server, CommandController controller) {
+        this.server = server;
+        controller.getTabCompleterService().setTabCompletionLimit(null);
+        controller.getMessage().register("command.error.wrong-usage", (sender, args) -> errors.increment());
+        controller.getMessage().register("command.error.no-message", (sender, args) -> errors.increment());
+    }
+
+    public LoadHarness command(int weight, String template) {
+        lines.add(template);
+        weights.add(weight);
+        return this;
+    }
+
+    public LoadHarness threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public LoadHarness warmup(long millis) {
+        this.warmupMillis = millis;
+        return this;
+    }
+
+    public LoadHarness duration(long millis) {
+        this.durationMillis = millis;
+        return this;
+    }
+
+    public LoadHarness typoRate(double typoRate) {
+        this.typoRate = typoRate;
+        return this;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        if (lines.isEmpty()) throw new IllegalStateException("No command lines to type");
+        players = server.getPlayers();
+        if (players.isEmpty()) throw new IllegalStateException("No virtual players online");
+
+        // Typists carry over from warmup, so the measured phase starts with sessions at every stage
+        List<List<Typist>> typists = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Typist> assigned = new ArrayList<>();
+            for (int i = t; i < players.size(); i += threads) {
+                assigned.add(new Typist(players.get(i)));
+            }
+            typists.add(assigned);
+        }
+
+        runPhase(new Phase(false), typists, warmupMillis);
+        errors.reset();
+        firstError = null;
+
+        Phase measured = new Phase(true);
+        long messagesBefore = server.getMessagesSent();
+        long start = System.nanoTime();
+        runPhase(measured, typists, durationMillis);
+        long elapsed = System.nanoTime() - start;
+
+        return new LoadReport(players.size(), threads, elapsed,
+                new LoadReport.Operation("dispatch", measured.dispatch.snapshot(), measured.dispatchBytes.sum(), elapsed),
+                new LoadReport.Operation("complete", measured.complete.snapshot(), measured.completeBytes.sum(), elapsed),
+                server.getMessagesSent() - messagesBefore, errors.sum(), firstError);
+    }
+
+    private void runPhase(Phase phase, List<List<Typist>> typists, long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            List<Typist> assigned = typists.get(t);
+            workers[t] = new Thread(() -> work(phase, assigned, deadline), "rlib-loadtest-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void work(Phase phase, List<Typist> typists, long deadline) {
+        if (typists.isEmpty()) return;
+        Random random = ThreadLocalRandom.current();
+        int step = 0;
+        while ((++step & 0xFF) != 0 || System.nanoTime() < deadline) {
+            Typist typist = typists.get(random.nextInt(typists.size()));
+            try {
+                typist.step(phase, random);
+            } catch (Throwable t) {
+                errors.increment();
+                if (firstError == null) firstError = t;
+                typist.reset();
+            }
+        }
+    }
+
+    private String pick(Random random) {
+        int total = 0;
+        for (int weight : weights) total += weight;
+        int roll = random.nextInt(total);
+        for (int i = 0; i < lines.size(); i++) {
+            roll -= weights.get(i);
+            if (roll < 0) return expand(lines.get(i), random);
+        }
+        return expand(lines.get(lines.size() - 1), random);
+    }
+
+    private String expand(String template, Random random) {
+        StringBuilder line = new StringBuilder();
+        for (String token : template.split(" ")) {
+            if (line.length() > 0) line.append(' ');
+            if (token.equals("{player}")) {
+                line.append(players.get(random.nextInt(players.size())).getName());
+            } else if (token.equals("{number}")) {
+                line.append(1 + random.nextInt(64));
+            } else if (token.indexOf('|') >= 0) {
+                String[] alternatives = token.split("\\|");
+                line.append(alternatives[random.nextInt(alternatives.length)]);
+            } else {
+                line.append(token);
+            }
+        }
+        return line.toString();
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) return null;
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    private static final class Phase {
+        private final boolean recording;
+        private final LatencyHistogram dispatch = new LatencyHistogram();
+        private final LatencyHistogram complete = new LatencyHistogram();
+        private final LongAdder dispatchBytes = new LongAdder();
+        private final LongAdder completeBytes = new LongAdder();
+
+        private Phase(boolean recording) {
+            this.recording = recording;
+        }
+    }
+
+    /**
+     * One virtual sender's typing session: the line being typed and how much of it is in the chat box.
+     */
+    private final class Typist {
+        private final Player player;
+        private Command command;
+        private String label;
+        private String arguments;
+        private final StringBuilder typed = new StringBuilder();
+        private int position;
+
+        private Typist(Player player) {
+            this.player = player;
+        }
+
+        void reset() {
+            command = null;
+        }
+
+        void step(Phase phase, Random random) {
+            if (command == null) begin(random);
+
+            if (position == arguments.length()) {
+                String[] args = arguments.isEmpty() ? new String[0] : arguments.split(" ");
+                Command executed = command;
+                command = null;
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                executed.execute(player, label, args);
+                record(phase, phase.dispatch, phase.dispatchBytes, start, bytes);
+                return;
+            }
+
+            if (typed.length() > position) {
+                // Noticed the typo, delete it
+                typed.setLength(position);
+            } else if (random.nextDouble() < typoRate) {
+                typed.append((char) ('a' + random.nextInt(26)));
+            } else {
+                typed.append(arguments.charAt(position++));
+            }
+
+            String[] args = typed.toString().split(" ", -1);
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            command.tabComplete(player, label, args);
+            record(phase, phase.complete, phase.completeBytes, start, bytes);
+        }
+
+        private void begin(Random random) {
+            String line = pick(random);
+            int space = line.indexOf(' ');
+            label = space < 0 ? line : line.substring(0, space);
+            arguments = space < 0 ? "" : line.substring(space + 1);
+            command = server.getCommandMap().getCommand(label);
+            if (command == null) throw new IllegalStateException("Command /" + label + " is not registered");
+            typed.setLength(0);
+            position = 0;
+        }
+
+        private void record(Phase phase, LatencyHistogram histogram, LongAdder allocated, long start, long bytes) {
+            long nanos = System.nanoTime() - start;
+            if (!phase.recording) return;
+            histogram.record(nanos);
+            allocated.add(allocatedBytes() - bytes);
+        }
+    }
+}
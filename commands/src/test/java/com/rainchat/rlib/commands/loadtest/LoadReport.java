@@ -0,0 +1,116 @@
+package com.rainchat.rlib.commands.loadtest;
+
+import com.rainchat.rlib.commands.components.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * What a {@link LoadHarness} run measured. Percentiles come from {@link LatencyHistogram} and are the upper bound
+ * of their power-of-two bucket, so they are coarse but stable between runs.
+ */
+public final class LoadReport {
+
+    private final int senders;
+    private final int threads;
+    private final long elapsedNanos;
+    private final Operation dispatch;
+    private final Operation complete;
+    private final long messages;
+    private final long errors;
+    private final Throwable firstError;
+
+    LoadReport(int senders, int threads, long elapsedNanos, Operation dispatch, Operation complete,
+               long messages, long errors, Throwable firstError) {
+        this.senders = senders;
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.dispatch = dispatch;
+        this.complete = complete;
+        this.messages = messages;
+        this.errors = errors;
+        this.firstError = firstError;
+    }
+
+    public Operation getDispatch() {
+        return dispatch;
+    }
+
+    public Operation getComplete() {
+        return complete;
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return handler failures and exceptions thrown out of the command, which a healthy run has none of
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public Throwable getFirstError() {
+        return firstError;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%d senders on %d threads for %.1f s, %d messages, %d errors%n",
+                senders, threads, elapsedNanos / 1e9, messages, errors));
+        report.append(String.format(Locale.ROOT, "%-10s %12s %12s %10s %10s %10s %12s%n",
+                "operation", "count", "ops/s", "p50 us", "p99 us", "max us", "bytes/op"));
+        report.append(dispatch).append(System.lineSeparator());
+        report.append(complete);
+        return report.toString();
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final LatencyHistogram.Snapshot latency;
+        private final long allocatedBytes;
+        private final long elapsedNanos;
+
+        Operation(String name, LatencyHistogram.Snapshot latency, long allocatedBytes, long elapsedNanos) {
+            this.name = name;
+            this.latency = latency;
+            this.allocatedBytes = allocatedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : latency.getCount() * 1e9 / elapsedNanos;
+        }
+
+        public long getP50Nanos() {
+            return latency.getPercentileNanos(0.50);
+        }
+
+        public long getP99Nanos() {
+            return latency.getPercentileNanos(0.99);
+        }
+
+        public long getMaxNanos() {
+            return latency.getMaxNanos();
+        }
+
+        /**
+         * @return bytes allocated by the calling thread per operation, or {@code 0} if the JVM cannot tell
+         */
+        public long getBytesPerOperation() {
+            return latency.getCount() == 0 ? 0 : allocatedBytes / latency.getCount();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-10s %12d %12.0f %10.1f %10.1f %10.1f %12d",
+                    name, getCount(), getThroughput(), getP50Nanos() / 1e3, getP99Nanos() / 1e3, getMaxNanos() / 1e3,
+                    getBytesPerOperation());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.rainchat.rlib.commands.loadtest;
+
+import com.rainchat.rlib.commands.annotation.CommandNode;
+import com.rainchat.rlib.commands.annotation.Completion;
+import com.rainchat.rlib.commands.annotation.Greedy;
+import com.rainchat.rlib.commands.annotation.Option;
+import com.rainchat.rlib.commands.annotation.Permission;
+import org.bukkit.Material;
+import org.bukkit.command.CommandSender;
+
+/**
+ * A typical plugin's command set. The handlers do no work, so the load test measures the framework.
+ */
+public class LoadTestCommands {
+
+    @CommandNode("give")
+    @Completion({"@player", "@material", "@range:1-64"})
+    public void give(CommandSender sender, String target, Material material, @Option("1") int amount) {
+    }
+
+    @CommandNode("msg")
+    @Completion({"@player"})
+    public void msg(CommandSender sender, String target, @Greedy String message) {
+    }
+
+    @CommandNode("admin kick")
+    @Permission("loadtest.mod")
+    @Completion({"@player"})
+    public void kick(CommandSender sender, String target) {
+    }
+
+    @CommandNode("admin reload")
+    @Permission("loadtest.admin")
+    public void reload(CommandSender sender) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.rainchat.rlib.commands.loadtest;
+
+import com.rainchat.rlib.commands.TestSenders;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A headless stand-in for a Paper server: a real {@link SimpleCommandMap}, a set of online players with fixed
+ * permissions and a plugin to register commands for. Every thread counts as the main thread and scheduled tasks
+ * run inline, so commands can be driven from many threads at once.
+ * <p>
+ * Bukkit's server can only be set once per JVM. The installed proxy forwards to the most recently created
+ * {@code VirtualServer}, so each test gets a fresh one.
+ */
+public final class VirtualServer {
+
+    private static final Logger LOGGER = Logger.getLogger("rlib-loadtest");
+    private static volatile VirtualServer current;
+
+    private final Server server;
+    private final CommandMap commandMap;
+    private final Plugin plugin;
+    private final ConsoleCommandSender console;
+    private final PluginManager pluginManager;
+    private final BukkitScheduler scheduler;
+    private final Map<String, Player> players = new LinkedHashMap<>();
+    private final LongAdder messages = new LongAdder();
+
+    private VirtualServer() {
+        this.server = proxy(Server.class, (proxy, method, args) -> {
+            VirtualServer virtualServer = current;
+            switch (method.getName()) {
+                case "getOnlinePlayers":
+                    return Collections.unmodifiableCollection(virtualServer.players.values());
+                case "getPlayer":
+                case "getPlayerExact":
+                    return virtualServer.players.get(((String) args[0]).toLowerCase(Locale.ROOT));
+                case "getWorlds":
+                    return Collections.emptyList();
+                case "getCommandMap":
+                    return virtualServer.commandMap;
+                case "getConsoleSender":
+                    return virtualServer.console;
+                case "getPluginManager":
+                    return virtualServer.pluginManager;
+                case "getScheduler":
+                    return virtualServer.scheduler;
+                case "getLogger":
+                    return LOGGER;
+                case "isPrimaryThread":
+                    return true;
+                case "getName":
+                case "getVersion":
+                case "getBukkitVersion":
+                case "toString":
+                    return "rlib-loadtest";
+                default:
+                    return objectMethod(proxy, method, args);
+            }
+        });
+        this.commandMap = new SimpleCommandMap(server);
+        PluginDescriptionFile description = new PluginDescriptionFile("LoadTest", "1.0", "com.rainchat.rlib.loadtest.LoadTest");
+        this.plugin = proxy(Plugin.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getDescription":
+                    return description;
+                case "getName":
+                case "toString":
+                    return "LoadTest";
+                case "getLogger":
+                    return LOGGER;
+                case "getServer":
+                    return server;
+                case "isEnabled":
+                    return true;
+                default:
+                    return objectMethod(proxy, method, args);
+            }
+        });
+        this.console = sender(ConsoleCommandSender.class, "CONSOLE", null, null);
+        // Listeners are not called; the harness keeps the player list fixed while it runs
+        this.pluginManager = proxy(PluginManager.class, (proxy, method, args) -> objectMethod(proxy, method, args));
+        this.scheduler = proxy(BukkitScheduler.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "runTask":
+                case "runTaskAsynchronously":
+                    ((Runnable) args[1]).run();
+                    return null;
+                case "callSyncMethod":
+                    FutureTask<?> task = new FutureTask<>((Callable<?>) args[1]);
+                    task.run();
+                    return task;
+                default:
+                    return objectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Creates a server and makes it the one {@link Bukkit} talks to.
+     */
+    public static synchronized VirtualServer start() {
+        VirtualServer virtualServer = new VirtualServer();
+        current = virtualServer;
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(virtualServer.server);
+        }
+        return virtualServer;
+    }
+
+    /**
+     * Adds an online player holding exactly the given permissions. Players should be added before the
+     * {@code CommandController} is created, which indexes the players online at that point.
+     */
+    public Player addPlayer(String name, Set<String> permissions) {
+        Player player = sender(Player.class, name, UUID.nameUUIDFromBytes(name.getBytes()), Set.copyOf(permissions));
+        players.put(name.toLowerCase(Locale.ROOT), player);
+        return player;
+    }
+
+    public List<Player> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public Plugin getPlugin() {
+        return plugin;
+    }
+
+    public CommandMap getCommandMap() {
+        return commandMap;
+    }
+
+    public ConsoleCommandSender getConsole() {
+        return console;
+    }
+
+    /**
+     * @return the number of chat messages sent to any sender so far
+     */
+    public long getMessagesSent() {
+        return messages.sum();
+    }
+
+    /**
+     * @param permissions the granted permissions, or {@code null} for a sender that has all of them
+     */
+    private <T extends CommandSender> T sender(Class<T> type, String name, UUID uuid, Set<String> permissions) {
+        return TestSenders.create(type, name, uuid, permissions, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServer":
+                    return server;
+                case "sendMessage":
+                    messages.increment();
+                    return null;
+                default:
+                    return objectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(VirtualServer.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return proxy.getClass().getSimpleName();
+            default:
+                return TestSenders.defaultValue(method.getReturnType());
+        }
+    }
+}
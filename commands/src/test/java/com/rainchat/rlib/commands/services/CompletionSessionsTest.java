@@ -0,0 +1,84 @@
+package com.rainchat.rlib.commands.services;
+
+import com.rainchat.rlib.commands.TestSenders;
+import junit.framework.TestCase;
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class CompletionSessionsTest extends TestCase {
+
+    private static final Object SCOPE = new Object();
+    private static final List<String> PLAYERS = Arrays.asList("Alex", "alice", "Bob", "Alfred");
+
+    private CompletionSessions sessions;
+    private CommandSender steve;
+
+    @Override
+    protected void setUp() {
+        sessions = new CompletionSessions();
+        steve = TestSenders.sender("Steve", null);
+        sessions.remember(steve, SCOPE, "give", new String[]{"x", ""}, PLAYERS, 100);
+    }
+
+    public void testNarrowsAcrossKeystrokes() {
+        assertEquals(Arrays.asList("Alex", "alice", "Alfred"), sessions.narrow(steve, SCOPE, "give", new String[]{"x", "al"}, 100));
+        assertEquals(Arrays.asList("alice"), sessions.narrow(steve, SCOPE, "give", new String[]{"x", "ALI"}, 100));
+    }
+
+    public void testBackspaceMisses() {
+        sessions.narrow(steve, SCOPE, "give", new String[]{"x", "ali"}, 100);
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"x", "al"}, 100));
+    }
+
+    public void testOtherInputMisses() {
+        assertNull(sessions.narrow(TestSenders.sender("Alex", null), SCOPE, "give", new String[]{"x", "a"}, 100));
+        assertNull(sessions.narrow(steve, new Object(), "give", new String[]{"x", "a"}, 100));
+        assertNull(sessions.narrow(steve, SCOPE, "msg", new String[]{"x", "a"}, 100));
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"y", "a"}, 100));
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"x", "a", ""}, 100));
+    }
+
+    public void testLimitCutsAnswerButNotSession() {
+        assertEquals(Arrays.asList("Alex"), sessions.narrow(steve, SCOPE, "give", new String[]{"x", "a"}, 1));
+        assertEquals(Arrays.asList("Alex", "alice", "Alfred"), sessions.narrow(steve, SCOPE, "give", new String[]{"x", "al"}, 100));
+    }
+
+    public void testTruncatedResultIsNotRemembered() {
+        CommandSender alex = TestSenders.sender("Alex", null);
+        sessions.remember(alex, SCOPE, "give", new String[]{""}, PLAYERS, PLAYERS.size());
+        assertNull(sessions.narrow(alex, SCOPE, "give", new String[]{"a"}, 100));
+    }
+
+    public void testIdleSessionExpires() throws InterruptedException {
+        sessions.setIdleTimeout(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"x", "a"}, 100));
+    }
+
+    public void testEvictionAndCap() {
+        sessions.evict(steve);
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"x", "a"}, 100));
+
+        CommandSender alex = TestSenders.sender("Alex", null);
+        sessions.setMaxSessions(1);
+        sessions.remember(steve, SCOPE, "give", new String[]{""}, PLAYERS, 100);
+        sessions.remember(alex, SCOPE, "give", new String[]{""}, PLAYERS, 100);
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"a"}, 100));
+        assertNotNull(sessions.narrow(alex, SCOPE, "give", new String[]{"a"}, 100));
+
+        sessions.setMaxSessions(0);
+        sessions.remember(steve, SCOPE, "give", new String[]{""}, PLAYERS, 100);
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"a"}, 100));
+    }
+
+    public void testPlayerJoinDropsSessions() {
+        TabCompleterService service = new TabCompleterService();
+        CompletionSessions sessions = service.getSessions();
+        sessions.remember(steve, SCOPE, "give", new String[]{""}, PLAYERS, 100);
+        service.playerJoined(TestSenders.player("Alan", null));
+        assertNull(sessions.narrow(steve, SCOPE, "give", new String[]{"a"}, 100));
+    }
+}
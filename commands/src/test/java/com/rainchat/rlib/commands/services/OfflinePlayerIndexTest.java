@@ -0,0 +1,182 @@
+package com.rainchat.rlib.commands.services;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class OfflinePlayerIndexTest extends TestCase {
+
+    private static final UUID STEVE = new UUID(0, 1);
+    private static final UUID ALEX = new UUID(0, 2);
+    private static final UUID NOTCH = new UUID(0, 3);
+
+    private Path directory;
+    private Path file;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("offline-index");
+        file = directory.resolve("players.idx");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path path : files) Files.delete(path);
+        }
+        Files.delete(directory);
+    }
+
+    public void testLookupAndSuggest() throws IOException {
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            assertTrue(index.isEmpty());
+            assertTrue(index.add("Steve", STEVE));
+            assertTrue(index.add("alex", ALEX));
+            assertFalse(index.add("STEVE", STEVE));
+            assertFalse(index.add("ThisNameIsTooLong", NOTCH));
+
+            assertEquals(STEVE, index.find("sTeVe"));
+            assertNull(index.find("Notch"));
+            assertEquals(Arrays.asList("alex", "Steve"), index.suggest("", 10));
+            assertEquals(Arrays.asList("Steve"), index.suggest("st", 10));
+            assertEquals(Collections.emptyList(), index.suggest("x", 10));
+        }
+    }
+
+    public void testSuggestMergesSortedAndAppended() throws IOException {
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            index.add("b1", new UUID(1, 1));
+            index.add("b3", new UUID(1, 3));
+            index.compact();
+            index.add("b2", new UUID(1, 2));
+            index.add("b4", new UUID(1, 4));
+            assertEquals(Arrays.asList("b1", "b2", "b3", "b4"), index.suggest("b", 10));
+            assertEquals(Arrays.asList("b1", "b2"), index.suggest("b", 2));
+
+            index.setMaxResults(3);
+            assertEquals(3, index.suggest("", 100).size());
+            assertFalse(index.isNarrowable());
+        }
+    }
+
+    public void testReopenKeepsPlayers() throws IOException {
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            index.add("Steve", STEVE);
+        }
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            index.add("Alex", ALEX);
+        }
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            assertEquals(STEVE, index.find("steve"));
+            assertEquals(ALEX, index.find("alex"));
+            assertEquals(2, index.size());
+        }
+    }
+
+    public void testRecordCutShortByCrashIsDropped() throws IOException {
+        Path copy = directory.resolve("copy.idx");
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            index.add("Steve", STEVE);
+            index.compact();
+            index.add("Alex", ALEX);
+            // What a crash leaves behind: appended records and part of another one
+            Files.copy(generations(file).get(0), directory.resolve("copy.idx.1"));
+        }
+        long intact = Files.size(directory.resolve("copy.idx.1"));
+        Files.write(directory.resolve("copy.idx.1"), new byte[10], StandardOpenOption.APPEND);
+
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(copy)) {
+            assertEquals(intact, Files.size(directory.resolve("copy.idx.1")));
+            assertEquals(STEVE, index.find("Steve"));
+            assertEquals(ALEX, index.find("Alex"));
+            assertTrue(index.add("Notch", NOTCH));
+        }
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(copy)) {
+            assertEquals(Arrays.asList("Alex", "Notch", "Steve"), index.suggest("", 10));
+        }
+    }
+
+    public void testRenames() throws IOException {
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            index.add("Steve", STEVE);
+            index.add("Alex", ALEX);
+            index.compact();
+
+            // Renamed away from a compacted name, then again before the next compaction
+            index.add("Steve2", STEVE);
+            index.add("Steve3", STEVE);
+            assertNull(index.find("Steve"));
+            assertNull(index.find("Steve2"));
+            assertEquals(STEVE, index.find("Steve3"));
+            assertEquals(Arrays.asList("Steve3"), index.suggest("st", 10));
+
+            // Someone else takes the old name
+            index.add("Steve", NOTCH);
+            assertEquals(NOTCH, index.find("Steve"));
+            assertEquals(Arrays.asList("Steve", "Steve3"), index.suggest("st", 10));
+        }
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            assertEquals(NOTCH, index.find("Steve"));
+            assertEquals(STEVE, index.find("Steve3"));
+            assertEquals(Arrays.asList("Alex", "Steve", "Steve3"), index.suggest("", 10));
+            assertEquals(3, index.size());
+        }
+    }
+
+    public void testCompactionSwitchesGeneration() throws IOException {
+        Files.write(directory.resolve("players.idx.7.tmp"), new byte[3]);
+        try (OfflinePlayerIndex index = OfflinePlayerIndex.open(file)) {
+            assertEquals(Arrays.asList(directory.resolve("players.idx.1")), generations(file));
+            index.add("Steve", STEVE);
+            index.compact();
+            assertEquals(Arrays.asList(directory.resolve("players.idx.2")), generations(file));
+            assertEquals(STEVE, index.find("Steve"));
+
+            // Nothing appended, nothing to do
+            index.compact();
+            assertEquals(Arrays.asList(directory.resolve("players.idx.2")), generations(file));
+
+            index.add("Alex", ALEX);
+            index.compact();
+            assertEquals(Arrays.asList("Alex", "Steve"), index.suggest("", 10));
+            assertEquals(2, index.size());
+        }
+        // Closing with nothing appended keeps the generation
+        assertEquals(Arrays.asList(directory.resolve("players.idx.3")), generations(file));
+    }
+
+    public void testAddAfterCloseIsIgnored() throws IOException {
+        OfflinePlayerIndex index = OfflinePlayerIndex.open(file);
+        index.add("Steve", STEVE);
+        index.close();
+        assertFalse(index.add("Alex", ALEX));
+        assertEquals(STEVE, index.find("Steve"));
+    }
+
+    public void testRejectsOtherFiles() throws IOException {
+        Files.write(directory.resolve("players.idx.1"), "not an index at all".getBytes());
+        try {
+            OfflinePlayerIndex.open(file).close();
+            fail("opened a file that is not an index");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static List<Path> generations(Path file) throws IOException {
+        List<Path> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(file.getParent(), file.getFileName() + ".*")) {
+            for (Path path : files) generations.add(path);
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
@@ -0,0 +1,71 @@
+package com.rainchat.rlib.commands.services;
+
+import junit.framework.TestCase;
+
+public class PrimitiveParsersTest extends TestCase {
+
+    public void testIntRange() {
+        assertEquals(Integer.MAX_VALUE, PrimitiveParsers.INT.parse("2147483647").getValue());
+        assertEquals(Integer.MIN_VALUE, PrimitiveParsers.INT.parse("-2147483648").getValue());
+        assertEquals(5, PrimitiveParsers.INT.parse("+5").getValue());
+        assertEquals(0, PrimitiveParsers.INT.parse("-0").getValue());
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.INT.parse("2147483648"));
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.INT.parse("-2147483649"));
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.INT.parse("99999999999999999999"));
+    }
+
+    public void testLongRange() {
+        assertEquals(Long.MAX_VALUE, PrimitiveParsers.LONG.parse("9223372036854775807").getValue());
+        assertEquals(Long.MIN_VALUE, PrimitiveParsers.LONG.parse("-9223372036854775808").getValue());
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.LONG.parse("9223372036854775808"));
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.LONG.parse("-9223372036854775809"));
+        assertEquals(Long.MIN_VALUE, PrimitiveParsers.LONG.parseLong("-9223372036854775808"));
+        try {
+            PrimitiveParsers.LONG.parseLong("9223372036854775808");
+            fail("overflow accepted");
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    public void testByteAndShortRange() {
+        assertEquals((byte) -128, PrimitiveParsers.BYTE.parse("-128").getValue());
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.BYTE.parse("128"));
+        assertEquals((short) 32767, PrimitiveParsers.SHORT.parse("32767").getValue());
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.SHORT.parse("-32769"));
+    }
+
+    public void testMalformedIntegers() {
+        for (String input : new String[]{"", "-", "+", "1a", " 1", "1 ", "0x10", "1_000", "\u0661"}) {
+            assertSame(input, ParseResult.INVALID_NUMBER, PrimitiveParsers.INT.parse(input));
+        }
+    }
+
+    public void testBoundsAwayFromZero() {
+        assertFalse(NumberSyntax.isInteger("0", 1, Long.MAX_VALUE));
+        assertFalse(NumberSyntax.isInteger("-1", 1, Long.MAX_VALUE));
+        assertTrue(NumberSyntax.isInteger("1", 1, Long.MAX_VALUE));
+        assertFalse(NumberSyntax.isInteger("0", -5, -1));
+        assertTrue(NumberSyntax.isInteger("-5", -5, -1));
+        assertFalse(NumberSyntax.isInteger("-6", -5, -1));
+    }
+
+    public void testDecimals() {
+        assertEquals(1500.0, PrimitiveParsers.DOUBLE.parseDouble("1.5e3"), 0);
+        assertEquals(0.5, PrimitiveParsers.DOUBLE.parseDouble(".5"), 0);
+        for (String input : new String[]{"NaN", "Infinity", "-Infinity", "0x1p3", "1f", "1d", "1e", ".", "-", ""}) {
+            assertSame(input, ParseResult.INVALID_NUMBER, PrimitiveParsers.DOUBLE.parse(input));
+        }
+    }
+
+    public void testDecimalOverflow() {
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.DOUBLE.parse("1e999"));
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.DOUBLE.parse("-1e999"));
+        assertSame(ParseResult.INVALID_NUMBER, PrimitiveParsers.FLOAT.parse("1e39"));
+        assertEquals(1e39, PrimitiveParsers.DOUBLE.parse("1e39").getValue());
+        try {
+            PrimitiveParsers.DOUBLE.parseDouble("1e999");
+            fail("overflow accepted");
+        } catch (NumberFormatException expected) {
+        }
+    }
+}
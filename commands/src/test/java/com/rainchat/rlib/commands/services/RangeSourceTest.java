@@ -0,0 +1,94 @@
+package com.rainchat.rlib.commands.services;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class RangeSourceTest extends TestCase {
+
+    public void testParse() {
+        assertEquals(Arrays.asList("0", "5", "10", "15"), RangeSource.parse("0-100:5:4").suggest("", 100));
+        assertEquals(Arrays.asList("-3", "-2", "-1", "0"), RangeSource.parse("-3-3").suggest("", 4));
+        assertEquals(Collections.emptyList(), RangeSource.parse("1-").suggest("", 10));
+        assertEquals(Collections.emptyList(), RangeSource.parse("0-10:0").suggest("", 10));
+        assertEquals(Collections.emptyList(), RangeSource.parse("0-10:1:2:3").suggest("", 10));
+        assertEquals(Collections.emptyList(), RangeSource.parse("0x1-10").suggest("", 10));
+    }
+
+    public void testMaxResultsCapsLimit() {
+        assertEquals(3, RangeSource.parse("0-1000:1:3").suggest("", 100).size());
+        assertEquals(RangeSource.DEFAULT_MAX_RESULTS, RangeSource.parse("0-1000").suggest("", 1000).size());
+    }
+
+    public void testPrefixBlocks() {
+        RangeSource source = new RangeSource(0, 1000, 1, 100);
+        assertEquals(Arrays.asList("1", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "100"),
+                source.suggest("1", 12));
+        assertEquals(Arrays.asList("0"), source.suggest("0", 10));
+        assertEquals(Collections.emptyList(), source.suggest("05", 10));
+        assertEquals(Collections.emptyList(), source.suggest("+1", 10));
+        assertEquals(Collections.emptyList(), source.suggest("x", 10));
+    }
+
+    public void testHugeRangeOnlyComputesSuggestions() {
+        RangeSource source = new RangeSource(0, Long.MAX_VALUE, 1, 100);
+        assertEquals(Arrays.asList("9", "90", "91"), source.suggest("9", 3));
+        assertEquals(Arrays.asList(String.valueOf(Long.MAX_VALUE)), source.suggest(String.valueOf(Long.MAX_VALUE), 3));
+
+        RangeSource negative = new RangeSource(Long.MIN_VALUE, 0, 1, 100);
+        assertEquals(Arrays.asList(String.valueOf(Long.MIN_VALUE)), negative.suggest(String.valueOf(Long.MIN_VALUE), 3));
+    }
+
+    public void testMatchesEnumeration() {
+        long[][] ranges = {{0, 250, 1}, {3, 1000, 7}, {-120, 45, 4}, {-999, -10, 3}, {-50, 50, 25}, {10, 5, 1}};
+        String[] prefixes = {"", "-", "0", "1", "2", "4", "-1", "-2", "-9", "10", "-12", "99", "7"};
+        for (long[] range : ranges) {
+            RangeSource source = new RangeSource(range[0], range[1], range[2], 1000);
+            for (String prefix : prefixes) {
+                for (int limit : new int[]{1, 5, 1000}) {
+                    assertEquals(Arrays.toString(range) + " \"" + prefix + "\" limit " + limit,
+                            enumerate(range[0], range[1], range[2], prefix, limit), source.suggest(prefix, limit));
+                }
+            }
+        }
+    }
+
+    public void testMatchesEnumerationAtLongLimits() {
+        long[][] ranges = {{Long.MAX_VALUE - 40, Long.MAX_VALUE, 3}, {Long.MIN_VALUE, Long.MIN_VALUE + 40, 3},
+                {Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE / 3}, {-5, Long.MAX_VALUE, Long.MAX_VALUE / 4}};
+        String[] prefixes = {"", "-", "1", "-1", "2", "-2", "9", "-9", "9223372036854775", "-9223372036854775",
+                "9223372036854775807", "-9223372036854775808", "-9223372036854775807"};
+        for (long[] range : ranges) {
+            RangeSource source = new RangeSource(range[0], range[1], range[2], 1000);
+            for (String prefix : prefixes) {
+                assertEquals(Arrays.toString(range) + " \"" + prefix + "\"",
+                        enumerate(range[0], range[1], range[2], prefix, 1000), source.suggest(prefix, 1000));
+            }
+        }
+    }
+
+    /**
+     * Every member of the range, in the order {@link RangeSource} promises: ascending for an empty or bare minus
+     * prefix, by magnitude otherwise.
+     */
+    private static List<String> enumerate(long min, long max, long step, String prefix, int limit) {
+        List<Long> values = new ArrayList<>();
+        for (long value = min; value <= max; value += step) {
+            if (Long.toString(value).startsWith(prefix)) values.add(value);
+            if (value > Long.MAX_VALUE - step) break;
+        }
+        if (prefix.startsWith("-") && !prefix.equals("-")) {
+            values.sort(Comparator.reverseOrder());
+        } else if (!prefix.isEmpty()) {
+            Collections.sort(values);
+        }
+
+        List<String> suggestions = new ArrayList<>();
+        for (int i = 0; i < values.size() && i < limit; i++) suggestions.add(Long.toString(values.get(i)));
+        return suggestions;
+    }
+}
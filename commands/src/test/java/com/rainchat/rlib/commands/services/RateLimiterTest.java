@@ -0,0 +1,87 @@
+package com.rainchat.rlib.commands.services;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateLimiterTest extends TestCase {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long START = 1_000_000_000L;
+
+    public void testBurstThenInterval() {
+        RateLimiter limiter = new RateLimiter(50, TimeUnit.MILLISECONDS, 3);
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire("a", START));
+        assertEquals(INTERVAL, limiter.tryAcquire("a", START));
+        assertEquals(1, limiter.tryAcquire("a", START + INTERVAL - 1));
+        assertEquals(0, limiter.tryAcquire("a", START + INTERVAL));
+        assertTrue(limiter.tryAcquire("a", START + INTERVAL) > 0);
+    }
+
+    public void testSendersAreIndependent() {
+        RateLimiter limiter = new RateLimiter(50, TimeUnit.MILLISECONDS, 1);
+        assertEquals(0, limiter.tryAcquire("a", START));
+        assertTrue(limiter.tryAcquire("a", START) > 0);
+        assertEquals(0, limiter.tryAcquire("b", START));
+        assertEquals(2, limiter.size());
+    }
+
+    public void testIdleBucketRefillsToBurstOnly() {
+        RateLimiter limiter = new RateLimiter(50, TimeUnit.MILLISECONDS, 2);
+        assertEquals(0, limiter.tryAcquire("a", START));
+        long later = START + 100 * INTERVAL;
+        assertEquals(0, limiter.tryAcquire("a", later));
+        assertEquals(0, limiter.tryAcquire("a", later));
+        assertTrue(limiter.tryAcquire("a", later) > 0);
+    }
+
+    public void testRefundNeverExceedsBurst() {
+        RateLimiter limiter = new RateLimiter(50, TimeUnit.MILLISECONDS, 2);
+        assertEquals(0, limiter.tryAcquire("a", START));
+        assertEquals(0, limiter.tryAcquire("a", START));
+        limiter.refund("a", START);
+        assertEquals(0, limiter.tryAcquire("a", START));
+        assertTrue(limiter.tryAcquire("a", START) > 0);
+
+        for (int i = 0; i < 5; i++) limiter.refund("a", START);
+        assertEquals(0, limiter.tryAcquire("a", START));
+        assertEquals(0, limiter.tryAcquire("a", START));
+        assertTrue(limiter.tryAcquire("a", START) > 0);
+        limiter.refund("unknown", START);
+        assertEquals(1, limiter.size());
+    }
+
+    public void testSweepDropsFullBuckets() {
+        RateLimiter limiter = new RateLimiter(1, TimeUnit.NANOSECONDS, 1);
+        long past = System.nanoTime() - 1000;
+        for (int i = 0; i < 100; i++) limiter.tryAcquire("sender" + i, past);
+        assertEquals(100, limiter.size());
+        limiter.sweep();
+        assertEquals(0, limiter.size());
+    }
+
+    public void testConcurrentRequestsTakeExactlyTheBurst() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1, TimeUnit.HOURS, 1000);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire("a", START) == 0) allowed.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        assertEquals(1000, allowed.get());
+    }
+}